@@ -0,0 +1,48 @@
+package de.tudarmstadt.lt.babelnet.extract.benchmarks;
+
+import de.tudarmstadt.lt.babelnet.extract.data.Cluster;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The benchmark of building the cluster representations, which includes the removal of the sense labels.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClusterBenchmark {
+    private static final int CLUSTERS = 1024;
+
+    @Param({"4", "16", "64"})
+    public int size;
+
+    private final List<List<String>> senses = new ArrayList<>();
+    private int cursor = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(1);
+        for (int i = 0; i < CLUSTERS; i++) {
+            final List<String> cluster = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                cluster.add(Fixtures.lemma(random.nextInt(100000)) + '#' + (1 + random.nextInt(9)));
+            }
+            senses.add(cluster);
+        }
+    }
+
+    @Benchmark
+    public List<String> build() {
+        cursor = (cursor + 1) % CLUSTERS;
+        return new Cluster.Builder().setId(cursor).addAllSenses(senses.get(cursor)).build().getLemmas();
+    }
+}
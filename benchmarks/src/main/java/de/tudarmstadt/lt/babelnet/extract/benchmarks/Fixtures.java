@@ -0,0 +1,185 @@
+package de.tudarmstadt.lt.babelnet.extract.benchmarks;
+
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The generator of the synthetic BabelNet-like fixtures. The taxonomy is a random tree, in which every synset
+ * has the given number of hyponyms on average, with the additional random hypernym links turning it into
+ * a directed acyclic graph like the real one. The lemmas are drawn from the vocabulary following Zipf's law,
+ * so the frequent lemmas appear in many clusters as in the Chinese Whispers output. The same seed always
+ * yields the same fixtures.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * Format the synset ID of the given node.
+     *
+     * @param node the node.
+     * @return the synset ID.
+     */
+    public static String synsetID(int node) {
+        return String.format(Locale.ROOT, "bn:%08dn", node);
+    }
+
+    /**
+     * Generate the taxonomy snapshot.
+     *
+     * @param filename the file to write.
+     * @param nodes    the number of synsets.
+     * @param fanout   the average number of hyponyms per synset.
+     * @param extra    the share of the synsets having the second hypernym.
+     * @param seed     the random seed.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static void taxonomy(String filename, int nodes, int fanout, double extra, long seed) throws IOException {
+        final Random random = new Random(seed);
+        final Taxonomy.Builder builder = new Taxonomy.Builder();
+        for (int node = 0; node < nodes; node++) builder.addNode(synsetID(node));
+        for (int node = 1; node < nodes; node++) {
+            link(builder, node, random.nextInt(Math.max(1, (node + fanout - 1) / fanout)));
+            if (random.nextDouble() < extra) link(builder, node, random.nextInt(node));
+        }
+        builder.write(filename);
+    }
+
+    private static void link(Taxonomy.Builder builder, int hyponym, int hypernym) {
+        builder.addEdge(synsetID(hyponym), synsetID(hypernym), true);
+        builder.addEdge(synsetID(hypernym), synsetID(hyponym), false);
+    }
+
+    /**
+     * Generate the synset list in the format of the synsets action.
+     *
+     * @param filename   the file to write.
+     * @param synsets    the number of synsets.
+     * @param senses     the average number of lemmas per synset.
+     * @param vocabulary the number of distinct lemmas.
+     * @param seed       the random seed.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static void synsets(String filename, int synsets, int senses, int vocabulary, long seed) throws IOException {
+        final Random random = new Random(seed);
+        final Zipf zipf = new Zipf(vocabulary, random);
+        try (final Writer writer = open(filename)) {
+            final StringBuilder sb = new StringBuilder();
+            for (int node = 0; node < synsets; node++) {
+                final int size = 1 + random.nextInt(2 * senses - 1);
+                sb.setLength(0);
+                sb.append(synsetID(node)).append('\t').append(size).append('\t');
+                for (int i = 0; i < size; i++) {
+                    if (i > 0) sb.append(", ");
+                    sb.append(lemma(zipf.next()));
+                }
+                writer.append(sb).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Generate the Chinese Whispers clusters file.
+     *
+     * @param filename   the file to write.
+     * @param clusters   the number of clusters.
+     * @param size       the average number of senses per cluster.
+     * @param vocabulary the number of distinct lemmas.
+     * @param seed       the random seed.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static void clusters(String filename, int clusters, int size, int vocabulary, long seed) throws IOException {
+        final Random random = new Random(seed);
+        final Zipf zipf = new Zipf(vocabulary, random);
+        try (final Writer writer = open(filename)) {
+            final StringBuilder sb = new StringBuilder();
+            for (int cluster = 0; cluster < clusters; cluster++) {
+                final int senses = 1 + random.nextInt(2 * size - 1);
+                sb.setLength(0);
+                sb.append(cluster).append('\t').append(senses).append('\t');
+                for (int i = 0; i < senses; i++) {
+                    sb.append(lemma(zipf.next())).append('#').append(1 + random.nextInt(9)).append(", ");
+                }
+                writer.append(sb).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Format the lemma of the given rank.
+     *
+     * @param rank the rank.
+     * @return the lemma.
+     */
+    public static String lemma(int rank) {
+        final StringBuilder sb = new StringBuilder();
+        int n = rank;
+        do {
+            sb.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        if (rank % 7 == 0) sb.append("_word");
+        return sb.toString();
+    }
+
+    private static Writer open(String filename) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Generate the fixtures from the command line: {@code taxonomy|synsets|clusters filename count [seed]}.
+     *
+     * @param args the command line arguments.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: taxonomy|synsets|clusters filename count [seed]");
+            System.exit(1);
+        }
+        final int count = Integer.parseInt(args[2]);
+        final long seed = (args.length > 3) ? Long.parseLong(args[3]) : 1;
+        switch (args[0]) {
+            case "taxonomy":
+                taxonomy(args[1], count, 8, 0.1, seed);
+                break;
+            case "synsets":
+                synsets(args[1], count, 4, count, seed);
+                break;
+            case "clusters":
+                clusters(args[1], count, 16, 10 * count, seed);
+                break;
+            default:
+                System.err.printf("Unknown fixture: \"%s\".\n", args[0]);
+                System.exit(1);
+        }
+    }
+
+    /**
+     * The sampler of the ranks following Zipf's law with the exponent of one using the inverse transform.
+     */
+    private static final class Zipf {
+        private final double[] cdf;
+        private final Random random;
+
+        private Zipf(int size, Random random) {
+            this.cdf = new double[size];
+            this.random = random;
+            double sum = 0;
+            for (int i = 0; i < size; i++) cdf[i] = sum += 1.0 / (i + 1);
+            for (int i = 0; i < size; i++) cdf[i] /= sum;
+        }
+
+        private int next() {
+            final int i = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min((i >= 0) ? i : -i - 1, cdf.length - 1);
+        }
+    }
+}
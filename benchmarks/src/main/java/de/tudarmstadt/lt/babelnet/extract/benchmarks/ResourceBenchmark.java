@@ -0,0 +1,85 @@
+package de.tudarmstadt.lt.babelnet.extract.benchmarks;
+
+import de.tudarmstadt.lt.babelnet.extract.Resource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The benchmark of the input/output routines on the synthetic cluster and synset files.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResourceBenchmark {
+    @Param({"10000"})
+    public int clusters;
+
+    @Param({"100000"})
+    public int synsets;
+
+    @Param({"0", "1024"})
+    public int window;
+
+    private Path clustersFile, synsetsFile, outputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        clustersFile = Files.createTempFile("clusters", ".txt");
+        synsetsFile = Files.createTempFile("synsets", ".txt");
+        outputFile = Files.createTempFile("output", ".txt");
+        Fixtures.clusters(clustersFile.toString(), clusters, 16, 10 * clusters, 1);
+        Fixtures.synsets(synsetsFile.toString(), synsets, 4, synsets, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(clustersFile);
+        Files.deleteIfExists(synsetsFile);
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public int readClusters() throws IOException {
+        return Resource.readClusters(clustersFile.toString()).size();
+    }
+
+    @Benchmark
+    public void streamClusters(Blackhole blackhole) throws IOException {
+        Resource.readClusters(clustersFile.toString(), stream -> stream.forEach(blackhole::consume));
+    }
+
+    @Benchmark
+    public int readSynsets() throws IOException {
+        return Resource.readSynsets(synsetsFile.toString()).size();
+    }
+
+    @Benchmark
+    public void streamSynsets(Blackhole blackhole) throws IOException {
+        Resource.readSynsets(synsetsFile.toString(), stream -> stream.forEach(blackhole::consume));
+    }
+
+    @Benchmark
+    public long writeRecords() throws IOException {
+        Resource.writeRecords(outputFile.toString(), window, writer -> {
+            try {
+                for (int i = 0; i < synsets; i++) {
+                    final int node = i;
+                    writer.write(i, csv -> csv.printRecord(Fixtures.synsetID(node), 1, Fixtures.lemma(node)));
+                }
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        return Files.size(outputFile);
+    }
+}
@@ -0,0 +1,81 @@
+package de.tudarmstadt.lt.babelnet.extract.benchmarks;
+
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+import de.tudarmstadt.lt.babelnet.extract.graph.Walker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The benchmark of the ego network extraction performed by the neighbours action on the synthetic taxonomy.
+ *
+ * @author Dmitry Ustalov
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalkerBenchmark {
+    @Param({"100000"})
+    public int nodes;
+
+    @Param({"8"})
+    public int fanout;
+
+    @Param({"1", "2", "3"})
+    public int depth;
+
+    private Path file;
+    private Taxonomy taxonomy;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("taxonomy", ".bin");
+        Fixtures.taxonomy(file.toString(), nodes, fanout, 0.1, 1);
+        taxonomy = Taxonomy.open(file.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int walk(Cursor cursor) throws IOException {
+        return cursor.walker.walk(cursor.random.nextInt(taxonomy.size()));
+    }
+
+    @Benchmark
+    public int walkAndFormat(Cursor cursor) throws IOException {
+        final int size = cursor.walker.walk(cursor.random.nextInt(taxonomy.size()));
+        final StringBuilder neighbours = cursor.neighbours;
+        neighbours.setLength(0);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) neighbours.append(',');
+            neighbours.append(taxonomy.getId(cursor.walker.getNeighbour(i))).append(':').append(cursor.walker.getLevel(i));
+        }
+        return neighbours.length();
+    }
+
+    /**
+     * The walker and the random source of every benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private Walker walker;
+        private SplittableRandom random;
+        private final StringBuilder neighbours = new StringBuilder();
+
+        @Setup(Level.Trial)
+        public void setUp(WalkerBenchmark benchmark) {
+            walker = new Walker(benchmark.taxonomy, benchmark.depth);
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+}
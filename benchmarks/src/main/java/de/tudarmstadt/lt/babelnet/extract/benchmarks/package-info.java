@@ -0,0 +1,4 @@
+/**
+ * Microbenchmarks running on the synthetic fixtures instead of the licensed BabelNet index.
+ */
+package de.tudarmstadt.lt.babelnet.extract.benchmarks;
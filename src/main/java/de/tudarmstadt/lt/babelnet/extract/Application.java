@@ -1,17 +1,40 @@
 package de.tudarmstadt.lt.babelnet.extract;
 
 import de.tudarmstadt.lt.babelnet.extract.actions.ClustersAction;
+import de.tudarmstadt.lt.babelnet.extract.actions.ExtractionOptions;
+import de.tudarmstadt.lt.babelnet.extract.actions.MergeAction;
 import de.tudarmstadt.lt.babelnet.extract.actions.NeighboursAction;
+import de.tudarmstadt.lt.babelnet.extract.actions.PipelineAction;
 import de.tudarmstadt.lt.babelnet.extract.actions.SensesAction;
+import de.tudarmstadt.lt.babelnet.extract.actions.ServeAction;
+import de.tudarmstadt.lt.babelnet.extract.actions.SnapshotAction;
 import de.tudarmstadt.lt.babelnet.extract.actions.SynsetsAction;
+import de.tudarmstadt.lt.babelnet.extract.actions.Workers;
+import de.tudarmstadt.lt.babelnet.extract.data.Shard;
+import de.tudarmstadt.lt.babelnet.extract.graph.BabelNetGraph;
+import de.tudarmstadt.lt.babelnet.extract.graph.Budget;
+import de.tudarmstadt.lt.babelnet.extract.graph.EdgeCache;
+import de.tudarmstadt.lt.babelnet.extract.graph.Graph;
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+import de.tudarmstadt.lt.babelnet.extract.stages.LemmasStage;
+import de.tudarmstadt.lt.babelnet.extract.stages.NeighboursStage;
+import de.tudarmstadt.lt.babelnet.extract.stages.SensesStage;
+import de.tudarmstadt.lt.babelnet.extract.stages.Stage;
 import it.uniroma1.lcl.babelnet.BabelNet;
 import it.uniroma1.lcl.babelnet.data.BabelPOS;
 import it.uniroma1.lcl.jlt.util.Language;
 import org.apache.commons.cli.*;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.logging.Handler;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * BabelNet Extract is an application for extracting certain data from the BabelNet lexical ontology.
@@ -38,20 +61,72 @@ abstract class Application {
         options.addOption(Option.builder("depth").argName("depth").hasArg().build());
         options.addOption(Option.builder("language").argName("language").hasArg().build());
         options.addOption(Option.builder("pos").argName("pos").hasArg().build());
+        options.addOption(Option.builder("taxonomy").argName("taxonomy").hasArg().build());
+        options.addOption(Option.builder("cache").argName("cache").hasArg().build());
+        options.addOption(Option.builder("window").argName("window").hasArg().build());
+        options.addOption(Option.builder("resume").build());
+        options.addOption(Option.builder("stages").argName("stages").hasArg().build());
+        options.addOption(Option.builder("verbose").build());
+        options.addOption(Option.builder("shard").argName("shard").hasArg().build());
+        options.addOption(Option.builder("output").argName("output").hasArg().build());
+        options.addOption(Option.builder().longOpt("memory-budget").argName("memory-budget").hasArg().build());
+        options.addOption(Option.builder("threads").argName("threads").hasArg().build());
+        options.addOption(Option.builder("executor").argName("executor").hasArg().build());
+        options.addOption(Option.builder("port").argName("port").hasArg().build());
+        options.addOption(Option.builder("results").argName("results").hasArg().build());
+        options.addOption(Option.builder().longOpt("all-sources").build());
+        options.addOption(Option.builder("locality").build());
+        options.addOption(Option.builder().longOpt("lemma-index").argName("lemma-index").hasArg().build());
+        options.addOption(Option.builder("prefetch").argName("prefetch").hasArg().build());
+        options.addOption(Option.builder().longOpt("previous-synsets").argName("previous-synsets").hasArg().build());
+        options.addOption(Option.builder().longOpt("previous-output").argName("previous-output").hasArg().build());
+        options.addOption(Option.builder().longOpt("max-visited").argName("max-visited").hasArg().build());
+        options.addOption(Option.builder().longOpt("max-fan-out").argName("max-fan-out").hasArg().build());
+        options.addOption(Option.builder().longOpt("max-time").argName("max-time").hasArg().build());
 
         CommandLine cmd = null;
         try {
             cmd = parser.parse(options, args);
         } catch (final ParseException ex) {
-            System.err.println(ex.getMessage());
-            final HelpFormatter formatter = new HelpFormatter();
-            formatter.printHelp("java -jar this.jar", options, true);
-            System.exit(1);
+            usage(options, ex.getMessage());
         }
 
         final String action = Objects.requireNonNull(cmd.getOptionValue("action"), "-action needs to be specified");
-        final BabelNet babelnet = BabelNet.getInstance();
         final Logger logger = Logger.getLogger("BabelNet");
+        if (cmd.hasOption("verbose")) {
+            logger.setLevel(Level.FINE);
+            for (final Handler handler : Logger.getLogger("").getHandlers()) handler.setLevel(Level.FINE);
+        }
+        final int window = Integer.valueOf(cmd.getOptionValue("window", "0"));
+        if (cmd.hasOption("threads") || cmd.hasOption("executor")) {
+            final String executor = cmd.getOptionValue("executor", "forkjoin");
+            final Workers.Kind kind = Arrays.stream(Workers.Kind.values()).
+                    filter(value -> value.toString().equalsIgnoreCase(executor)).
+                    findFirst().orElse(null);
+            if (kind == null) usage(options, "Unknown executor: " + executor + ", expected forkjoin, fixed, or virtual");
+            final int threads;
+            try {
+                threads = Integer.parseInt(cmd.getOptionValue("threads",
+                        Integer.toString(Runtime.getRuntime().availableProcessors())));
+                Workers.configure(kind, threads);
+            } catch (final IllegalArgumentException | IllegalStateException ex) {
+                usage(options, "Cannot configure the executor: " + ex.getMessage());
+                return;
+            }
+            logger.log(Level.INFO, "Running {0} {1} thread(s)", new String[]{Integer.toString(threads), kind.toString().toLowerCase()});
+        }
+        final long memoryBudget = Long.valueOf(cmd.getOptionValue("memory-budget", "256")) << 20;
+        final ExtractionOptions extraction = new ExtractionOptions.Builder().
+                setWindow(window).
+                setResume(cmd.hasOption("resume")).
+                setShard(cmd.hasOption("shard") ? Shard.parse(cmd.getOptionValue("shard")) : Shard.ALL).
+                setLocality(cmd.hasOption("locality")).
+                setMemoryBudget(memoryBudget).
+                setPrefetch(Integer.valueOf(cmd.getOptionValue("prefetch", "0"))).
+                setPrevious(cmd.getOptionValue("previous-synsets"), cmd.getOptionValue("previous-output")).
+                build();
+        final Budget budget = Budget.of(Integer.valueOf(cmd.getOptionValue("max-visited", "0")),
+                Integer.valueOf(cmd.getOptionValue("max-fan-out", "0")), Long.valueOf(cmd.getOptionValue("max-time", "0")));
         switch (action) {
             case "clusters": {
                 final Language language = Objects.requireNonNull(Resource.LANGUAGES.get(cmd.getOptionValue("language", "EN").toLowerCase()));
@@ -60,7 +135,7 @@ abstract class Application {
                         "-clusters needs to be specified");
                 final String wordsFilename = cmd.getOptionValue("words", "synsets.txt");
                 final String synsetsFilename = cmd.getOptionValue("synsets", "synsets.txt");
-                new ClustersAction(babelnet, language, pos, clustersFilename, wordsFilename, synsetsFilename, logger).run();
+                new ClustersAction(BabelNet.getInstance(), language, pos, clustersFilename, wordsFilename, synsetsFilename, window, memoryBudget, logger).run();
                 break;
             }
             case "neighbours": {
@@ -68,7 +143,16 @@ abstract class Application {
                         "-synsets needs to be specified");
                 final String neighboursFilename = cmd.getOptionValue("neighbours", "neighbours.txt");
                 final int depth = Integer.valueOf(cmd.getOptionValue("depth", "1"));
-                new NeighboursAction(babelnet, synsetsFilename, neighboursFilename, depth, logger).run();
+                if (cmd.hasOption("taxonomy")) {
+                    final Taxonomy taxonomy = Taxonomy.open(cmd.getOptionValue("taxonomy"));
+                    new NeighboursAction(taxonomy, synsetsFilename, neighboursFilename, depth, budget, cmd.hasOption("all-sources"), extraction, logger).run();
+                } else {
+                    final EdgeCache cache = new EdgeCache(Integer.valueOf(cmd.getOptionValue("cache", "1000000")));
+                    final BabelNetGraph graph = new BabelNetGraph(BabelNet.getInstance(), cache);
+                    new NeighboursAction(graph, synsetsFilename, neighboursFilename, depth, budget, cmd.hasOption("all-sources"), extraction, logger).run();
+                    logger.log(Level.INFO, "Edge cache: {0} hit(s), {1} miss(es), {2} eviction(s)", new String[]{
+                            Long.toString(cache.getHits()), Long.toString(cache.getMisses()), Long.toString(cache.getEvictions())});
+                }
                 break;
             }
             case "senses": {
@@ -76,13 +160,75 @@ abstract class Application {
                 final String synsetsFilename = Objects.requireNonNull(cmd.getOptionValue("synsets"),
                         "-synsets needs to be specified");
                 final String sensesFilename = cmd.getOptionValue("senses", "senses.txt");
-                new SensesAction(babelnet, language, synsetsFilename, sensesFilename, logger).run();
+                new SensesAction(BabelNet.getInstance(), language, synsetsFilename, sensesFilename, cmd.getOptionValue("lemma-index"), extraction, logger).run();
                 break;
             }
             case "synsets": {
-                final Language language = Objects.requireNonNull(Resource.LANGUAGES.get(cmd.getOptionValue("language", "EN").toLowerCase()));
+                final List<Language> languages = Arrays.stream(cmd.getOptionValue("language", "EN").split(",")).
+                        map(language -> Objects.requireNonNull(Resource.LANGUAGES.get(language.trim().toLowerCase()))).
+                        distinct().collect(Collectors.toList());
                 final String synsetsFilename = cmd.getOptionValue("synsets", "synsets.txt");
-                new SynsetsAction(babelnet, language, synsetsFilename, logger).run();
+                new SynsetsAction(BabelNet.getInstance(), languages, synsetsFilename, window, logger).run();
+                break;
+            }
+            case "pipeline": {
+                final Language language = Objects.requireNonNull(Resource.LANGUAGES.get(cmd.getOptionValue("language", "EN").toLowerCase()));
+                final BabelNet babelnet = BabelNet.getInstance();
+                EdgeCache cache = null;
+                final Map<String, Stage> stages = new LinkedHashMap<>();
+                for (final String stage : cmd.getOptionValue("stages", "lemmas,senses,neighbours").split(",")) {
+                    switch (stage.trim().toLowerCase()) {
+                        case "lemmas":
+                            stages.put(cmd.getOptionValue("synsets", "synsets.txt"), new LemmasStage(language));
+                            break;
+                        case "senses":
+                            stages.put(cmd.getOptionValue("senses", "senses.txt"), new SensesStage(language));
+                            break;
+                        case "neighbours": {
+                            final int depth = Integer.valueOf(cmd.getOptionValue("depth", "1"));
+                            final Graph graph;
+                            if (cmd.hasOption("taxonomy")) {
+                                graph = Taxonomy.open(cmd.getOptionValue("taxonomy"));
+                            } else {
+                                cache = new EdgeCache(Integer.valueOf(cmd.getOptionValue("cache", "1000000")));
+                                graph = new BabelNetGraph(babelnet, cache);
+                            }
+                            stages.put(cmd.getOptionValue("neighbours", "neighbours.txt"), new NeighboursStage(graph, depth, budget));
+                            break;
+                        }
+                        default:
+                            throw new IllegalArgumentException("Unknown stage: \"" + stage + "\"");
+                    }
+                }
+                new PipelineAction(babelnet, language, stages, window, logger).run();
+                if (cache != null) {
+                    logger.log(Level.INFO, "Edge cache: {0} hit(s), {1} miss(es), {2} eviction(s)", new String[]{
+                            Long.toString(cache.getHits()), Long.toString(cache.getMisses()), Long.toString(cache.getEvictions())});
+                }
+                break;
+            }
+            case "merge": {
+                final String outputFilename = Objects.requireNonNull(cmd.getOptionValue("output"),
+                        "-output needs to be specified");
+                new MergeAction(cmd.getArgList(), outputFilename, memoryBudget, logger).run();
+                break;
+            }
+            case "serve": {
+                final Language language = Objects.requireNonNull(Resource.LANGUAGES.get(cmd.getOptionValue("language", "EN").toLowerCase()));
+                final BabelPOS pos = Objects.requireNonNull(Resource.POS.get(cmd.getOptionValue("pos", "noun").toLowerCase()));
+                final int depth = Integer.valueOf(cmd.getOptionValue("depth", "1"));
+                final int port = Integer.valueOf(cmd.getOptionValue("port", "8080"));
+                final int results = Integer.valueOf(cmd.getOptionValue("results", "100000"));
+                final BabelNet babelnet = BabelNet.getInstance();
+                final Graph graph = cmd.hasOption("taxonomy") ?
+                        Taxonomy.open(cmd.getOptionValue("taxonomy")) :
+                        new BabelNetGraph(babelnet, new EdgeCache(Integer.valueOf(cmd.getOptionValue("cache", "1000000"))));
+                new ServeAction(babelnet, graph, language, pos, depth, budget, port, results, logger).run();
+                break;
+            }
+            case "snapshot": {
+                final String taxonomyFilename = cmd.getOptionValue("taxonomy", "taxonomy.bin");
+                new SnapshotAction(BabelNet.getInstance(), taxonomyFilename, logger).run();
                 break;
             }
             default:
@@ -90,4 +236,17 @@ abstract class Application {
                 break;
         }
     }
+
+    /**
+     * Print the error message and the usage, and exit.
+     *
+     * @param options the command-line options.
+     * @param message the error message.
+     */
+    private static void usage(Options options, String message) {
+        System.err.println(message);
+        final HelpFormatter formatter = new HelpFormatter();
+        formatter.printHelp("java -jar this.jar", options, true);
+        System.exit(1);
+    }
 }
@@ -1,6 +1,10 @@
 package de.tudarmstadt.lt.babelnet.extract;
 
 import de.tudarmstadt.lt.babelnet.extract.data.Cluster;
+import de.tudarmstadt.lt.babelnet.extract.io.ClusterReader;
+import de.tudarmstadt.lt.babelnet.extract.io.GzipBlockOutputStream;
+import de.tudarmstadt.lt.babelnet.extract.io.Journal;
+import de.tudarmstadt.lt.babelnet.extract.io.RecordWriter;
 import it.uniroma1.lcl.babelnet.data.BabelPOS;
 import it.uniroma1.lcl.jlt.util.Language;
 import org.apache.commons.csv.CSVFormat;
@@ -9,13 +13,18 @@ import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-
-import static java.util.stream.Collectors.toList;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 /**
  * An interface containing the input/output routines used by other classes.
@@ -33,6 +42,57 @@ public interface Resource {
      */
     Map<String, BabelPOS> POS = EnumSet.allOf(BabelPOS.class).stream().collect(Collectors.toMap(p -> p.toString().toLowerCase(), Function.identity()));
 
+    /**
+     * Check whether the file is compressed, i.e., its name ends with {@code .gz}.
+     *
+     * @param filename the file name.
+     * @return true if the file is compressed.
+     */
+    static boolean isCompressed(String filename) {
+        return filename.endsWith(".gz");
+    }
+
+    /**
+     * Open the specified file for reading, decompressing it if it is compressed.
+     *
+     * @param filename the file to read.
+     * @return the input stream.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static InputStream openInput(String filename) throws IOException {
+        final InputStream stream = new FileInputStream(filename);
+        if (!isCompressed(filename)) return stream;
+        try {
+            return new GZIPInputStream(stream, 1 << 16);
+        } catch (final IOException | RuntimeException ex) {
+            stream.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Compress the output written to the stream if the file is compressed. The blocks of the output are compressed
+     * in parallel and written asynchronously.
+     *
+     * @param filename the file name.
+     * @param stream   the stream writing to the file.
+     * @return the output stream.
+     */
+    static OutputStream compress(String filename, OutputStream stream) {
+        return isCompressed(filename) ? new GzipBlockOutputStream(stream) : stream;
+    }
+
+    /**
+     * Open the specified file for writing, compressing it if it is compressed.
+     *
+     * @param filename the file to write.
+     * @return the output stream.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static OutputStream openOutput(String filename) throws IOException {
+        return compress(filename, new FileOutputStream(filename));
+    }
+
     /**
      * Open the specified file for reading and pass the CSV parser to the given function once.
      *
@@ -43,29 +103,55 @@ public interface Resource {
      * @throws IOException when an I/O error has occurred.
      */
     static <R> R readRecords(String filename, Function<CSVParser, R> f) throws IOException {
-        try (final InputStream stream = new FileInputStream(filename);
+        try (final InputStream stream = openInput(filename);
              final Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
              final CSVParser csv = CSVFormat.MYSQL.parse(reader)) {
             return f.apply(csv);
         }
     }
 
+    /**
+     * Open the Chinese Whispers clusters file and pass the stream of its records to the given consumer once.
+     * The records are parsed lazily as the stream is consumed, so the file is never loaded into memory entirely.
+     *
+     * @param filename the file to read.
+     * @param f        the consumer to pass the clusters in the input order.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static void readClusters(String filename, Consumer<Stream<Cluster>> f) throws IOException {
+        try (final ClusterReader reader = isCompressed(filename) ?
+                ClusterReader.open(openInput(filename)) : ClusterReader.open(filename)) {
+            f.accept(StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED), false));
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
     /**
      * Open the Chinese Whispers clusters file and parse the records.
      *
      * @param filename the file to read.
-     * @return the mapping between a set of cluster IDs and their representations.
+     * @return the mapping between a set of cluster IDs and their representations in the input order.
      * @throws IOException when an I/O error has occurred.
      */
     static Map<Integer, Cluster> readClusters(String filename) throws IOException {
-        return readRecords(filename, csv -> {
-            final Map<Integer, Cluster> map = new HashMap<>();
-            for (final CSVRecord row : csv) {
-                final Integer id = Integer.parseInt(row.get(0));
-                final List<String> senses = Arrays.asList(row.get(2).substring(0, row.get(2).length() - 2).split(", "));
-                map.put(id, new Cluster.Builder().setId(id).addAllSenses(senses).build());
-            }
-            return map;
+        final Map<Integer, Cluster> map = new LinkedHashMap<>();
+        readClusters(filename, clusters -> clusters.forEach(cluster -> map.put(cluster.getId(), cluster)));
+        return map;
+    }
+
+    /**
+     * Open the synset list and pass the stream of synset IDs to the given consumer once. The IDs are read
+     * lazily as the stream is consumed, so the file is never loaded into memory entirely.
+     *
+     * @param filename the file to read.
+     * @param f        the consumer to pass the synset IDs in the input order.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static void readSynsets(String filename, Consumer<Stream<String>> f) throws IOException {
+        readRecords(filename, csv -> {
+            f.accept(StreamSupport.stream(csv.spliterator(), false).map(row -> row.get(0)));
+            return null;
         });
     }
 
@@ -77,13 +163,27 @@ public interface Resource {
      * @throws IOException when an I/O error has occurred.
      */
     static List<String> readSynsets(String filename) throws IOException {
-        return readRecords(filename, csv -> {
-            try {
-                return csv.getRecords().stream().map(row -> row.get(0)).collect(toList());
-            } catch (final IOException ex) {
-                throw new RuntimeException(ex);
+        final List<String> synsets = new ArrayList<>();
+        readSynsets(filename, stream -> stream.forEach(synsets::add));
+        return synsets;
+    }
+
+    /**
+     * Count the records in the specified file, i.e., its lines, without parsing them.
+     *
+     * @param filename the file to read.
+     * @return the number of records.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static long countRecords(String filename) throws IOException {
+        long count = 0;
+        try (final InputStream stream = openInput(filename)) {
+            final byte[] buffer = new byte[1 << 16];
+            for (int n = stream.read(buffer); n >= 0; n = stream.read(buffer)) {
+                for (int i = 0; i < n; i++) if (buffer[i] == '\n') count++;
             }
-        });
+        }
+        return count;
     }
 
     /**
@@ -94,13 +194,65 @@ public interface Resource {
      * @throws IOException when an I/O error has occurred.
      */
     static void writeRecords(String filename, Consumer<CSVPrinter> f) throws IOException {
-        try (final OutputStream stream = new FileOutputStream(filename);
+        try (final OutputStream stream = openOutput(filename);
              final Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
              final CSVPrinter csv = CSVFormat.MYSQL.print(writer)) {
             f.accept(csv);
         }
     }
 
+    /**
+     * Open the specified file for writing using the writer stage, which closes the file when closed itself.
+     *
+     * @param filename the file to write.
+     * @param window   the size of the reorder window, or zero to write the records in the order of completion.
+     * @return the writer stage.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static RecordWriter openRecords(String filename, int window) throws IOException {
+        final OutputStream stream = openOutput(filename);
+        return new RecordWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16), window);
+    }
+
+    /**
+     * Open the specified file for writing and pass the writer stage to the given consumer once. The records
+     * are written to the file by the I/O thread of the stage.
+     *
+     * @param filename the file to write.
+     * @param window   the size of the reorder window, or zero to write the records in the order of completion.
+     * @param f        the consumer to pass the writer stage.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static void writeRecords(String filename, int window, Consumer<RecordWriter> f) throws IOException {
+        writeRecords(filename, window, null, f);
+    }
+
+    /**
+     * Open the specified file for writing and pass the writer stage to the given consumer once. If the journal
+     * is given, the file is truncated to the last committed length and appended, and the journal receives
+     * the keys of the written items. A compressed file can be truncated as well, since every commit ends
+     * the current gzip member.
+     *
+     * @param filename the file to write.
+     * @param window   the size of the reorder window, or zero to write the records in the order of completion.
+     * @param journal  the progress journal, or null.
+     * @param f        the consumer to pass the writer stage.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static void writeRecords(String filename, int window, Journal journal, Consumer<RecordWriter> f) throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             final Writer writer = new BufferedWriter(new OutputStreamWriter(compress(filename, Channels.newOutputStream(channel)),
+                     StandardCharsets.UTF_8), 1 << 16)) {
+            channel.truncate(journal == null ? 0 : journal.getOutputLength());
+            channel.position(channel.size());
+            try (final RecordWriter records = new RecordWriter(writer, window,
+                    journal == null ? null : keys -> journal.commit(keys, channel.position()))) {
+                f.accept(records);
+            }
+        }
+    }
+
     /**
      * Open the specified class for writing the given string collection.
      *
@@ -1,38 +1,41 @@
 package de.tudarmstadt.lt.babelnet.extract.actions;
 
-import de.tudarmstadt.lt.babelnet.extract.data.Cluster;
+import de.tudarmstadt.lt.babelnet.extract.io.ExternalSorter;
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import de.tudarmstadt.lt.babelnet.extract.stages.LemmaCache;
 import it.uniroma1.lcl.babelnet.BabelNet;
-import it.uniroma1.lcl.babelnet.BabelSynset;
-import it.uniroma1.lcl.babelnet.BabelSynsetID;
 import it.uniroma1.lcl.babelnet.data.BabelPOS;
 import it.uniroma1.lcl.jlt.util.Language;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.io.UncheckedIOException;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static de.tudarmstadt.lt.babelnet.extract.Resource.readClusters;
 import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
-import static java.util.Collections.synchronizedMap;
 import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toSet;
 
 /**
  * The clusters action extracts the list of synsets per given clusters and the list of the synsets containing
- * the words in these clusters.
+ * the words in these clusters. The clusters are parsed while the previous ones are being processed, and
+ * every distinct lemma is looked up in BabelNet only once while the cache fits in its half of the memory budget.
+ * The synsets found by every lookup are collected by the external sorter under the other half, so their number
+ * is limited only by the disk space, and they are written sorted and deduplicated after processing all the clusters.
  *
  * @author Dmitry Ustalov
  */
 public class ClustersAction {
+    private static final int BATCH_SIZE = 64;
+
     private final BabelNet babelnet;
     private final Language language;
     private final BabelPOS pos;
     private final String clustersFilename, wordsFilename, synsetsFilename;
+    private final int window;
+    private final long memoryBudget;
     private final Logger logger;
 
     /**
@@ -44,15 +47,20 @@ public class ClustersAction {
      * @param clustersFilename the clusters input file.
      * @param wordsFilename    the words output file.
      * @param synsetsFilename  the synsets output file.
+     * @param window           the size of the reorder window, or zero for the unordered output.
+     * @param memoryBudget     the approximate number of bytes of the found synset IDs kept in memory, shared equally
+     *                         by the lemma cache and the sorter.
      * @param logger           the logger instance.
      */
-    public ClustersAction(BabelNet babelnet, Language language, BabelPOS pos, String clustersFilename, String wordsFilename, String synsetsFilename, Logger logger) {
+    public ClustersAction(BabelNet babelnet, Language language, BabelPOS pos, String clustersFilename, String wordsFilename, String synsetsFilename, int window, long memoryBudget, Logger logger) {
         this.babelnet = babelnet;
         this.language = language;
         this.pos = pos;
         this.clustersFilename = clustersFilename;
         this.wordsFilename = wordsFilename;
         this.synsetsFilename = synsetsFilename;
+        this.window = window;
+        this.memoryBudget = memoryBudget;
         this.logger = logger;
         logger.log(Level.INFO, "Reading clusters from \"{0}\"", clustersFilename);
         logger.log(Level.INFO, "Writing words to \"{0}\"", wordsFilename);
@@ -65,39 +73,74 @@ public class ClustersAction {
      * @throws IOException when an I/O error has occurred.
      */
     public void run() throws IOException {
-        final Map<Integer, Cluster> allClusters = synchronizedMap(readClusters(clustersFilename));
-        final Set<String> allSynsets = new ConcurrentSkipListSet<>();
+        try (final ExternalSorter sorter = new ExternalSorter(Comparator.naturalOrder(), memoryBudget / 2)) {
+            run(sorter);
+        }
+        logger.log(Level.INFO, "Done");
+    }
 
-        writeRecords(wordsFilename, csv ->
-                allClusters.values().parallelStream().forEach(cluster -> {
-                    try {
-                        logger.log(Level.INFO, "Extracting {0}", cluster.getId().toString());
-                        final Map<String, Collection<String>> synsets = new HashMap<>();
-                        for (final String lemma : cluster.getLemmas()) {
-                            final Collection<String> lemmaSynsets = babelnet.
-                                    getSynsets(lemma, language, pos).stream().
-                                    map(BabelSynset::getId).map(BabelSynsetID::toString).
-                                    collect(toSet());
-                            synsets.put(lemma, lemmaSynsets);
-                            allSynsets.addAll(lemmaSynsets);
-                        }
-                        synchronized (csv) {
-                            for (final Map.Entry<String, Collection<String>> entry : synsets.entrySet()) {
-                                csv.printRecord(
-                                        cluster.getId().toString(),
-                                        entry.getKey(),
-                                        entry.getValue().stream().collect(joining(","))
-                                );
-                            }
+    /**
+     * Process the clusters collecting the found synsets into the given sorter and write the outputs.
+     *
+     * @param sorter the sorter of the synset IDs.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private void run(ExternalSorter sorter) throws IOException {
+        final LemmaCache cache = new LemmaCache(babelnet, synsets -> {
+            try {
+                sorter.addAll(synsets);
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }, memoryBudget / 2);
+
+        // Counting the clusters would read the whole file once more, so the progress is reported without the total.
+        try (final Closeable progress = Metrics.getInstance().start(logger, 0)) {
+            writeRecords(wordsFilename, window, writer -> {
+                try {
+                    readClusters(clustersFilename, clusters -> Workers.forEach(clusters.iterator(), BATCH_SIZE, (cluster, index) -> {
+                        try {
+                            logger.log(Level.FINE, "Extracting {0}", cluster.getId().toString());
+                            writer.write(index, csv -> {
+                                // The words are listed in the iteration order of the hash map, as they have always been.
+                                final Map<String, Collection<String>> synsets = new HashMap<>();
+                                for (final String lemma : cluster.getLemmas()) {
+                                    synsets.put(lemma, cache.get(lemma, language, pos));
+                                }
+                                for (final Map.Entry<String, Collection<String>> entry : synsets.entrySet()) {
+                                    csv.printRecord(
+                                            cluster.getId().toString(),
+                                            entry.getKey(),
+                                            entry.getValue().stream().collect(joining(","))
+                                    );
+                                }
+                            });
+                            Metrics.getInstance().item();
+                            logger.log(Level.FINE, "Extracted {0}", cluster.getId().toString());
+                        } catch (final IOException ex) {
+                            throw new RuntimeException(ex);
                         }
-                        logger.log(Level.INFO, "Extracted {0}", cluster.getId().toString());
-                    } catch (final IOException ex) {
-                        throw new RuntimeException(ex);
-                    }
-                })
-        );
+                    }, writer::abort));
+                } catch (final IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
+        }
 
-        writeRecords(synsetsFilename, allSynsets);
-        logger.log(Level.INFO, "Done");
+        logger.log(Level.INFO, "Lemma cache: {0} hit(s), {1} miss(es)",
+                new String[]{Long.toString(cache.getHits()), Long.toString(cache.getMisses())});
+        logger.log(Level.INFO, "Collected the synsets, spilled {0} run(s)", Integer.toString(sorter.getRuns()));
+        final Iterator<String> synsets = sorter.sorted(true);
+        try {
+            writeRecords(synsetsFilename, csv -> {
+                try {
+                    while (synsets.hasNext()) csv.printRecord(synsets.next());
+                } catch (final IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            });
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
     }
 }
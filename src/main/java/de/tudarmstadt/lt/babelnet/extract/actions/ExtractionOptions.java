@@ -0,0 +1,204 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.data.Shard;
+
+/**
+ * The options of the sense and neighbourhood extraction actions controlling how the synsets are scheduled, resumed,
+ * and updated, which do not affect the records themselves. The options are created using the {@link Builder}.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class ExtractionOptions {
+    private final int window;
+    private final boolean resume;
+    private final Shard shard;
+    private final boolean locality;
+    private final long memoryBudget;
+    private final int prefetch;
+    private final String previousSynsetsFilename, previousFilename;
+
+    private ExtractionOptions(Builder builder) {
+        this.window = builder.window;
+        this.resume = builder.resume;
+        this.shard = builder.shard;
+        this.locality = builder.locality;
+        this.memoryBudget = builder.memoryBudget;
+        this.prefetch = builder.prefetch;
+        this.previousSynsetsFilename = builder.previousSynsetsFilename;
+        this.previousFilename = builder.previousFilename;
+    }
+
+    /**
+     * Get the size of the reorder window.
+     *
+     * @return the number of items, or zero for the unordered output.
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Check whether to skip the synsets completed in the previous run.
+     *
+     * @return true if the run is resumed.
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * Get the shard of the synsets to process.
+     *
+     * @return the shard.
+     */
+    public Shard getShard() {
+        return shard;
+    }
+
+    /**
+     * Check whether to process the synsets in the order of their offsets.
+     *
+     * @return true if the synsets are sorted.
+     */
+    public boolean isLocality() {
+        return locality;
+    }
+
+    /**
+     * Get the approximate number of bytes of the sorted synsets and records kept in memory.
+     *
+     * @return the number of bytes.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Get the number of synsets loaded ahead of the workers.
+     *
+     * @return the number of synsets, or zero to load them in the workers.
+     */
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * Get the synsets input file of the previous run.
+     *
+     * @return the file, or null to process all the synsets.
+     */
+    public String getPreviousSynsetsFilename() {
+        return previousSynsetsFilename;
+    }
+
+    /**
+     * Get the output file of the previous run.
+     *
+     * @return the file, or null to process all the synsets.
+     */
+    public String getPreviousFilename() {
+        return previousFilename;
+    }
+
+    /**
+     * A builder of the options, which are initialized to the defaults of the command-line options.
+     */
+    public static class Builder {
+        private int window = 0;
+        private boolean resume = false;
+        private Shard shard = Shard.ALL;
+        private boolean locality = false;
+        private long memoryBudget = 256L << 20;
+        private int prefetch = 0;
+        private String previousSynsetsFilename, previousFilename;
+
+        /**
+         * Set the size of the reorder window.
+         *
+         * @param window the number of items, or zero for the unordered output.
+         * @return this builder.
+         */
+        public Builder setWindow(int window) {
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Set whether to skip the synsets completed in the previous run.
+         *
+         * @param resume whether the run is resumed.
+         * @return this builder.
+         */
+        public Builder setResume(boolean resume) {
+            this.resume = resume;
+            return this;
+        }
+
+        /**
+         * Set the shard of the synsets to process.
+         *
+         * @param shard the shard.
+         * @return this builder.
+         */
+        public Builder setShard(Shard shard) {
+            this.shard = shard;
+            return this;
+        }
+
+        /**
+         * Set whether to process the synsets in the order of their offsets.
+         *
+         * @param locality whether the synsets are sorted.
+         * @return this builder.
+         */
+        public Builder setLocality(boolean locality) {
+            this.locality = locality;
+            return this;
+        }
+
+        /**
+         * Set the approximate number of bytes of the sorted synsets and records kept in memory.
+         *
+         * @param memoryBudget the number of bytes.
+         * @return this builder.
+         */
+        public Builder setMemoryBudget(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * Set the number of synsets loaded ahead of the workers.
+         *
+         * @param prefetch the number of synsets, or zero to load them in the workers.
+         * @return this builder.
+         */
+        public Builder setPrefetch(int prefetch) {
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * Set the synsets input file and the output file of the previous run, so only the added synsets
+         * are processed, see {@link Increment}.
+         *
+         * @param previousSynsetsFilename the synsets input file of the previous run, or null.
+         * @param previousFilename        the output file of the previous run, or null.
+         * @return this builder.
+         */
+        public Builder setPrevious(String previousSynsetsFilename, String previousFilename) {
+            this.previousSynsetsFilename = previousSynsetsFilename;
+            this.previousFilename = previousFilename;
+            return this;
+        }
+
+        /**
+         * Create the options.
+         *
+         * @return the options.
+         */
+        public ExtractionOptions build() {
+            return new ExtractionOptions(this);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.data.Shard;
+import de.tudarmstadt.lt.babelnet.extract.io.ExternalSorter;
+import de.tudarmstadt.lt.babelnet.extract.io.Journal;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static de.tudarmstadt.lt.babelnet.extract.Resource.countRecords;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.openInput;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.openOutput;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.readSynsets;
+
+/**
+ * The difference between the synset lists of the previous and the current runs, which allows processing only
+ * the added synsets and copying the records of the unchanged ones from the previous output. Both lists are sorted
+ * externally and compared in a single pass, so they are never loaded into memory entirely. Only the added and
+ * the removed synsets are kept in memory, which is fine as long as the lists differ by a small fraction.
+ * <p>
+ * The records of the previous output are copied in their order except the ones of the removed synsets,
+ * and the records of the added synsets follow them. This is valid only if BabelNet itself has not changed
+ * between the runs. The records of the added synsets are written to the file next to the output file first,
+ * and merged into the output file afterwards.
+ * <p>
+ * If there is no previous run, all the synsets are processed and written to the output file directly, so
+ * the actions follow the same sequence of calls in both cases: {@link #open}, {@link #remaining}, and {@link #finish}.
+ *
+ * @author Dmitry Ustalov
+ */
+final class Increment {
+    private final Set<String> added, removed;
+    private final long unchanged, count;
+    private final String previousFilename, filename;
+    private final Logger logger;
+
+    private Increment(Set<String> added, Set<String> removed, long unchanged, long count, String previousFilename, String filename, Logger logger) {
+        this.added = added;
+        this.removed = removed;
+        this.unchanged = unchanged;
+        this.count = count;
+        this.previousFilename = previousFilename;
+        this.filename = filename;
+        this.logger = logger;
+    }
+
+    /**
+     * Check the files of the previous run given to the action. The previous output is read while the output
+     * is written, so they cannot be the same file.
+     *
+     * @param options  the options of the action.
+     * @param filename the output file.
+     * @throws IllegalArgumentException when only one of the previous files is given or the previous output file
+     *                                  is the output file.
+     */
+    static void check(ExtractionOptions options, String filename) {
+        final String previousFilename = options.getPreviousFilename();
+        if ((options.getPreviousSynsetsFilename() == null) != (previousFilename == null)) {
+            throw new IllegalArgumentException("Both the previous synsets and output files are required");
+        }
+        if (previousFilename != null && isSameFile(previousFilename, filename)) {
+            throw new IllegalArgumentException("The previous output file has to differ from the output file: " + filename);
+        }
+    }
+
+    private static boolean isSameFile(String filename1, String filename2) {
+        final Path path1 = Paths.get(filename1), path2 = Paths.get(filename2);
+        try {
+            if (Files.exists(path1) && Files.exists(path2)) return Files.isSameFile(path1, path2);
+        } catch (final IOException ex) {
+            // The paths are compared as they are if the files cannot be accessed.
+        }
+        return path1.toAbsolutePath().normalize().equals(path2.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Compare the synset lists of the previous and the current runs, if the previous run is given. Both lists
+     * are sorted externally within the memory budget and compared in a single pass.
+     *
+     * @param options         the options of the action giving the previous run and the memory budget.
+     * @param synsetsFilename the synsets input file of the current run.
+     * @param filename        the output file.
+     * @param logger          the logger instance.
+     * @return the difference.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static Increment open(ExtractionOptions options, String synsetsFilename, String filename, Logger logger) throws IOException {
+        final String previousSynsetsFilename = options.getPreviousSynsetsFilename(), previousFilename = options.getPreviousFilename();
+        final long budget = options.getMemoryBudget();
+        if (previousSynsetsFilename == null) {
+            return new Increment(null, Collections.emptySet(), 0, countRecords(synsetsFilename), null, filename, logger);
+        }
+        final Set<String> added = new HashSet<>(), removed = new HashSet<>();
+        long unchanged = 0;
+        try (final ExternalSorter previousSorter = sort(previousSynsetsFilename, budget / 2);
+             final ExternalSorter currentSorter = sort(synsetsFilename, budget / 2)) {
+            final Iterator<String> previous = previousSorter.sorted(true), current = currentSorter.sorted(true);
+            String left = previous.hasNext() ? previous.next() : null, right = current.hasNext() ? current.next() : null;
+            while (left != null || right != null) {
+                final int order = (left == null) ? 1 : (right == null) ? -1 : left.compareTo(right);
+                if (order < 0) {
+                    removed.add(left);
+                } else if (order > 0) {
+                    added.add(right);
+                } else {
+                    unchanged++;
+                }
+                if (order <= 0) left = previous.hasNext() ? previous.next() : null;
+                if (order >= 0) right = current.hasNext() ? current.next() : null;
+            }
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        logger.log(Level.INFO, "Found {0} added, {1} removed, and {2} unchanged synset(s)", new String[]{
+                Integer.toString(added.size()), Integer.toString(removed.size()), Long.toString(unchanged)});
+        return new Increment(added, removed, unchanged, added.size(), previousFilename, filename, logger);
+    }
+
+    private static ExternalSorter sort(String filename, long budget) throws IOException {
+        final ExternalSorter sorter = new ExternalSorter(Comparator.naturalOrder(), budget);
+        try {
+            readSynsets(filename, synsets -> synsets.forEach(synsetID -> {
+                try {
+                    sorter.add(synsetID);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        } catch (final UncheckedIOException ex) {
+            sorter.close();
+            throw ex.getCause();
+        } catch (final IOException | RuntimeException ex) {
+            sorter.close();
+            throw ex;
+        }
+        return sorter;
+    }
+
+    /**
+     * Check whether only the synsets added since the previous run are processed.
+     *
+     * @return true if the previous run is given.
+     */
+    boolean isPartial() {
+        return added != null;
+    }
+
+    /**
+     * Get the number of the synsets to process, i.e., the added ones or all of them.
+     *
+     * @return the number of synsets.
+     */
+    long size() {
+        return count;
+    }
+
+    /**
+     * Select the synsets of the shard that have been added since the previous run, if any, and have not been
+     * completed yet.
+     *
+     * @param synsets the synset IDs.
+     * @param shard   the shard.
+     * @param journal the progress journal, or null.
+     * @return the remaining synset IDs.
+     */
+    Iterator<String> remaining(Stream<String> synsets, Shard shard, Journal journal) {
+        Stream<String> remaining = synsets.filter(shard::contains);
+        if (added != null) remaining = remaining.filter(added::contains);
+        if (journal != null) remaining = remaining.filter(id -> !journal.isCompleted(id));
+        return remaining.iterator();
+    }
+
+    /**
+     * Get the file the records of the processed synsets are written to.
+     *
+     * @return the output file or the file of the added records next to it.
+     */
+    String getOutputFilename() {
+        return (added == null) ? filename : filename + ".added";
+    }
+
+    /**
+     * Merge the records of the added synsets into the output file, if the previous run is given.
+     *
+     * @param keep whether to keep the file of the added records, e.g., for the resumed run.
+     * @throws IOException when an I/O error has occurred.
+     */
+    void finish(boolean keep) throws IOException {
+        if (added == null) return;
+        logger.log(Level.INFO, "Merging the records of \"{0}\" to \"{1}\"", new String[]{previousFilename, filename});
+        final long copied = merge(previousFilename, getOutputFilename(), filename);
+        logger.log(Level.INFO, "Copied {0} record(s)", Long.toString(copied));
+        if (!keep) Files.delete(Paths.get(getOutputFilename()));
+    }
+
+    /**
+     * Get the number of the added synsets.
+     *
+     * @return the number of synsets.
+     */
+    int getAdded() {
+        return added.size();
+    }
+
+    /**
+     * Get the number of the removed synsets.
+     *
+     * @return the number of synsets.
+     */
+    int getRemoved() {
+        return removed.size();
+    }
+
+    /**
+     * Get the number of the synsets present in both lists.
+     *
+     * @return the number of synsets.
+     */
+    long getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Write the records of the previous output except the ones of the removed synsets followed by the records
+     * of the added synsets. The records are copied as they are, without parsing.
+     *
+     * @param previousFilename the output file of the previous run.
+     * @param addedFilename    the file of the records of the added synsets.
+     * @param filename         the output file.
+     * @return the number of the copied records.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private long merge(String previousFilename, String addedFilename, String filename) throws IOException {
+        long copied = 0;
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(openOutput(filename), StandardCharsets.UTF_8), 1 << 16)) {
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(openInput(previousFilename), StandardCharsets.UTF_8), 1 << 16)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    final int tab = line.indexOf('\t');
+                    if (line.isEmpty() || removed.contains((tab < 0) ? line : line.substring(0, tab))) continue;
+                    writer.append(line).append('\n');
+                    copied++;
+                }
+            }
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(openInput(addedFilename), StandardCharsets.UTF_8), 1 << 16)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) writer.append(line).append('\n');
+            }
+        }
+        return copied;
+    }
+}
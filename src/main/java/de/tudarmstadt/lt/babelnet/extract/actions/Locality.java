@@ -0,0 +1,217 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import de.tudarmstadt.lt.babelnet.extract.io.ExternalSorter;
+import de.tudarmstadt.lt.babelnet.extract.io.Journal;
+import de.tudarmstadt.lt.babelnet.extract.io.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.stages.Stage;
+import it.uniroma1.lcl.babelnet.BabelNet;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static de.tudarmstadt.lt.babelnet.extract.Resource.openOutput;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
+
+/**
+ * The routines for processing the synsets in the order of their offsets instead of the input order. The synsets
+ * of BabelNet are stored in the index roughly in the order of their offsets, so the lookups of the nearby synsets
+ * hit the same pages of the index files, which stay in the page cache. The synsets are sorted externally, every
+ * one tagged with its input index, so the input order of the records can be restored afterwards. The synsets
+ * completed in the previous run are counted in the input index as well, so the resumed run tags its records
+ * in the same way as the interrupted one did.
+ * <p>
+ * The sorted lines contain the hexadecimal code of the synset ID, the input index, and the synset ID separated
+ * by tabs, so their natural order is the order of the offsets. The tagged records are prefixed with the input index
+ * of their synset in the same way.
+ *
+ * @author Dmitry Ustalov
+ */
+final class Locality {
+    private static final int KEY_LENGTH = 16;
+    private static final Comparator<String> BY_INDEX = (line1, line2) -> {
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            final int order = Character.compare(line1.charAt(i), line2.charAt(i));
+            if (order != 0) return order;
+        }
+        return 0;
+    };
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+    private static final ThreadLocal<CSVPrinter> PRINTERS = ThreadLocal.withInitial(() -> {
+        try {
+            return CSVFormat.MYSQL.print(BUFFERS.get());
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private Locality() {
+    }
+
+    /**
+     * The handler writing the records of a single synset.
+     */
+    @FunctionalInterface
+    interface Processor {
+        /**
+         * Write the records of the synset.
+         *
+         * @param writer   the writer.
+         * @param index    the sequence number of the synset.
+         * @param synsetID the synset ID.
+         * @param printer  the printer of the synset records.
+         */
+        void process(RecordWriter writer, long index, String synsetID, RecordWriter.Printer printer);
+    }
+
+    /**
+     * Process the synsets in the order of their offsets and write the records in the input order if the reorder
+     * window is given. The tagged records are written in the order of completion, and the input order is restored
+     * afterwards.
+     *
+     * @param babelnet  the BabelNet instance loading the synsets ahead of the workers, or null.
+     * @param synsets   the synset IDs in the input order, including the ones completed in the previous run.
+     * @param stage     the stage printing the records.
+     * @param processor the handler writing the records of every synset.
+     * @param journal   the progress journal, or null.
+     * @param filename  the output file.
+     * @param options   the options giving the reorder window, the resumption, the lookahead, and the memory budget.
+     * @param batchSize the number of synsets per task of the workers.
+     * @param logger    the logger instance.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static void run(BabelNet babelnet, Iterator<String> synsets, Stage stage, Processor processor, Journal journal, String filename, ExtractionOptions options, int batchSize, Logger logger) throws IOException {
+        final int window = options.getWindow();
+        final long budget = options.getMemoryBudget();
+        final String taggedFilename = (window > 0) ? filename + ".tagged" : filename;
+        try (final ExternalSorter sorter = sort(synsets, (journal == null) ? synsetID -> false : journal::isCompleted, budget)) {
+            logger.log(Level.INFO, "Sorted the synsets by offset, spilled {0} run(s)", Integer.toString(sorter.getRuns()));
+            try (final Prefetcher<String> prefetcher = new Prefetcher<>(babelnet, sorter.sorted(false), Locality::getSynsetID, options.getPrefetch())) {
+                writeRecords(taggedFilename, 0, journal, writer ->
+                        Workers.forEach(prefetcher, batchSize, (item, index) -> {
+                            final String synsetID = item.getSynsetID();
+                            final RecordWriter.Printer printer = csv -> stage.print(synsetID, item.getSynset(), csv);
+                            processor.process(writer, index, synsetID, (window > 0) ? tag(getIndex(item.get()), printer) : printer);
+                        }, writer::abort)
+                );
+            }
+        }
+        if (window > 0) {
+            logger.log(Level.INFO, "Restoring the input order to \"{0}\"", filename);
+            restore(taggedFilename, filename, budget);
+            if (!options.isResume()) Files.delete(Paths.get(taggedFilename));
+        }
+    }
+
+    private static String hex(long value) {
+        final String digits = Long.toHexString(value);
+        final StringBuilder sb = new StringBuilder(KEY_LENGTH);
+        for (int i = digits.length(); i < KEY_LENGTH; i++) sb.append('0');
+        return sb.append(digits).toString();
+    }
+
+    /**
+     * Sort the synsets in the order of their offsets skipping the completed ones. The caller has to close
+     * the returned sorter.
+     *
+     * @param synsets   the synset IDs in the input order.
+     * @param completed the predicate telling whether the synset has been completed in the previous run.
+     * @param budget    the approximate number of bytes of the synsets kept in memory.
+     * @return the sorter holding the sorted lines, which are parsed by {@link #getIndex(String)}
+     * and {@link #getSynsetID(String)}.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static ExternalSorter sort(Iterator<String> synsets, Predicate<String> completed, long budget) throws IOException {
+        final ExternalSorter sorter = new ExternalSorter(Comparator.naturalOrder(), budget);
+        try {
+            for (long index = 0; synsets.hasNext(); index++) {
+                final String synsetID = synsets.next();
+                if (completed.test(synsetID)) continue;
+                sorter.add(hex(SynsetIDs.encode(synsetID) ^ Long.MIN_VALUE) + '\t' + hex(index) + '\t' + synsetID);
+            }
+        } catch (final IOException | RuntimeException ex) {
+            sorter.close();
+            throw ex;
+        }
+        return sorter;
+    }
+
+    /**
+     * Get the input index of the sorted synset.
+     *
+     * @param line the sorted line.
+     * @return the input index.
+     */
+    static long getIndex(String line) {
+        return Long.parseUnsignedLong(line.substring(KEY_LENGTH + 1, 2 * KEY_LENGTH + 1), 16);
+    }
+
+    /**
+     * Get the synset ID of the sorted synset.
+     *
+     * @param line the sorted line.
+     * @return the synset ID.
+     */
+    static String getSynsetID(String line) {
+        return line.substring(2 * KEY_LENGTH + 2);
+    }
+
+    /**
+     * Wrap the printer to prefix every record with the input index of the synset.
+     *
+     * @param index   the input index.
+     * @param printer the printer of the synset records.
+     * @return the printer writing the tagged records.
+     */
+    static RecordWriter.Printer tag(long index, RecordWriter.Printer printer) {
+        return csv -> {
+            final StringBuilder buffer = BUFFERS.get();
+            buffer.setLength(0);
+            printer.print(PRINTERS.get());
+            if (buffer.length() == 0) return;
+            final String prefix = hex(index);
+            final Appendable out = csv.getOut();
+            for (int start = 0, end = buffer.indexOf("\n"); end >= 0; start = end + 1, end = buffer.indexOf("\n", start)) {
+                out.append(prefix).append('\t').append(buffer, start, end + 1);
+            }
+        };
+    }
+
+    /**
+     * Restore the input order of the tagged records and remove the tags. The records of every synset keep
+     * their relative order.
+     *
+     * @param taggedFilename the file of the tagged records.
+     * @param filename       the output file.
+     * @param budget         the approximate number of bytes of the records kept in memory.
+     * @throws IOException when an I/O error has occurred.
+     */
+    static void restore(String taggedFilename, String filename, long budget) throws IOException {
+        try (final ExternalSorter sorter = new ExternalSorter(BY_INDEX, budget)) {
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(taggedFilename), StandardCharsets.UTF_8), 1 << 16)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.isEmpty()) sorter.add(line);
+                }
+            }
+            try (final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    openOutput(filename), StandardCharsets.UTF_8), 1 << 16)) {
+                for (final Iterator<String> it = sorter.sorted(false); it.hasNext(); ) {
+                    final String line = it.next();
+                    writer.append(line, KEY_LENGTH + 1, line.length()).append('\n');
+                }
+            } catch (final UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.io.ExternalSorter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static de.tudarmstadt.lt.babelnet.extract.Resource.openInput;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.openOutput;
+
+/**
+ * The merge action combines the outputs of several runs, e.g., the shards of the senses or neighbours actions
+ * or the synset lists of the clusters action, into a single file sorted by the records and having no duplicates.
+ * The inputs are sorted externally, so they are not loaded into memory entirely.
+ *
+ * @author Dmitry Ustalov
+ */
+public class MergeAction {
+    private final List<String> inputFilenames;
+    private final String outputFilename;
+    private final long memoryBudget;
+    private final Logger logger;
+
+    /**
+     * Initialize the action.
+     *
+     * @param inputFilenames the input files.
+     * @param outputFilename the output file.
+     * @param memoryBudget   the approximate number of bytes of the records kept in memory.
+     * @param logger         the logger instance.
+     */
+    public MergeAction(List<String> inputFilenames, String outputFilename, long memoryBudget, Logger logger) {
+        this.inputFilenames = inputFilenames;
+        this.outputFilename = outputFilename;
+        this.memoryBudget = memoryBudget;
+        this.logger = logger;
+        for (final String inputFilename : inputFilenames) {
+            logger.log(Level.INFO, "Reading records from \"{0}\"", inputFilename);
+        }
+        logger.log(Level.INFO, "Writing records to \"{0}\"", outputFilename);
+    }
+
+    /**
+     * Process the data and write the outputs.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void run() throws IOException {
+        try (final ExternalSorter sorter = new ExternalSorter(Comparator.naturalOrder(), memoryBudget)) {
+            long read = 0;
+            for (final String inputFilename : inputFilenames) {
+                try (final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        openInput(inputFilename), StandardCharsets.UTF_8), 1 << 16)) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        if (line.isEmpty()) continue;
+                        sorter.add(line);
+                        read++;
+                    }
+                }
+            }
+            logger.log(Level.INFO, "Read {0} record(s), spilled {1} run(s)",
+                    new String[]{Long.toString(read), Integer.toString(sorter.getRuns())});
+
+            long written = 0;
+            try (final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    openOutput(outputFilename), StandardCharsets.UTF_8), 1 << 16)) {
+                for (final Iterator<String> it = sorter.sorted(true); it.hasNext(); written++) {
+                    writer.append(it.next()).append('\n');
+                }
+            } catch (final UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            logger.log(Level.INFO, "Wrote {0} record(s)", Long.toString(written));
+        }
+
+        logger.log(Level.INFO, "Done");
+    }
+}
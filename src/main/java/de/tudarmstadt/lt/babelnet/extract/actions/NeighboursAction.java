@@ -1,47 +1,107 @@
 package de.tudarmstadt.lt.babelnet.extract.actions;
 
-import it.uniroma1.lcl.babelnet.*;
-import it.uniroma1.lcl.babelnet.data.BabelPointer;
+import de.tudarmstadt.lt.babelnet.extract.graph.BabelNetGraph;
+import de.tudarmstadt.lt.babelnet.extract.graph.Budget;
+import de.tudarmstadt.lt.babelnet.extract.graph.Graph;
+import de.tudarmstadt.lt.babelnet.extract.data.Shard;
+import de.tudarmstadt.lt.babelnet.extract.graph.Neighbourhoods;
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+import de.tudarmstadt.lt.babelnet.extract.io.EgoNetworks;
+import de.tudarmstadt.lt.babelnet.extract.io.Journal;
+import de.tudarmstadt.lt.babelnet.extract.io.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import de.tudarmstadt.lt.babelnet.extract.stages.NeighboursStage;
+import de.tudarmstadt.lt.babelnet.extract.stages.Stage;
+import it.uniroma1.lcl.babelnet.BabelNet;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static de.tudarmstadt.lt.babelnet.extract.Resource.readSynsets;
 import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
-import static java.util.Collections.synchronizedList;
-import static java.util.stream.Collectors.joining;
 
 /**
- * The neighbours action extracts the n-level ego network for each of the given synsets.
+ * The neighbours action extracts the n-level ego network for each of the given synsets. The graph is either
+ * queried from BabelNet or read from the taxonomy snapshot produced by the snapshot action.
+ * <p>
+ * In the all-sources mode, which requires the taxonomy snapshot, the synsets are read twice. The first pass
+ * collects the sources, then the neighbourhoods of the lower depths are computed for all the nodes reachable from
+ * them at once in parallel, and the second pass combines these neighbourhoods into the ego networks of the sources.
+ * <p>
+ * If the output file is binary, the records are written to the text file next to it first, and then encoded
+ * into the binary file, which is read using {@link EgoNetworks}. Given the synsets and the neighbours of the previous
+ * run, only the added synsets are processed, see {@link Increment}. Every walk can be limited by the {@link Budget},
+ * in which case the incomplete ego networks are marked as truncated.
  *
  * @author Dmitry Ustalov
  */
 public class NeighboursAction {
-    private final BabelNet babelnet;
-    private final String synsetsFilename, neighboursFilename;
+    private static final int BATCH_SIZE = 256, NODES_BATCH_SIZE = 1024;
+
+    private final Graph graph;
+    private final String synsetsFilename, neighboursFilename, recordsFilename;
     private final int depth;
+    private final Budget budget;
+    private final boolean allSources;
+    private final ExtractionOptions options;
     private final Logger logger;
 
     /**
      * Initialize the action.
      *
-     * @param babelnet           the BabelNet instance.
+     * @param graph              the graph.
      * @param synsetsFilename    the synsets input file.
      * @param neighboursFilename the neighbours output file.
      * @param depth              the graph depth.
+     * @param budget             the limits of every walk.
+     * @param allSources         whether to compute the ego networks of all the synsets at once.
+     * @param options            the options of processing the synsets; the synsets are loaded ahead of the workers
+     *                           only if the graph is queried from BabelNet.
      * @param logger             the logger instance.
+     * @throws IllegalArgumentException when the all-sources mode is requested for the graph other than the taxonomy
+     *                                  or with the walk limits, only one of the previous files is given,
+     *                                  or the previous output is binary or the text output itself.
      */
-    public NeighboursAction(BabelNet babelnet, String synsetsFilename, String neighboursFilename, int depth, Logger logger) {
-        this.babelnet = babelnet;
+    public NeighboursAction(Graph graph, String synsetsFilename, String neighboursFilename, int depth, Budget budget, boolean allSources, ExtractionOptions options, Logger logger) {
+        if (allSources && !(graph instanceof Taxonomy)) {
+            throw new IllegalArgumentException("The all-sources mode requires the taxonomy snapshot");
+        }
+        if (allSources && !budget.isUnlimited()) {
+            throw new IllegalArgumentException("The all-sources mode does not support the walk limits");
+        }
+        if (options.getPreviousFilename() != null && EgoNetworks.isBinary(options.getPreviousFilename())) {
+            throw new IllegalArgumentException("The previous neighbours file has to be in the text format");
+        }
+        this.graph = graph;
         this.synsetsFilename = synsetsFilename;
         this.neighboursFilename = neighboursFilename;
+        this.recordsFilename = EgoNetworks.isBinary(neighboursFilename) ? neighboursFilename + ".txt" : neighboursFilename;
+        Increment.check(options, recordsFilename);
         this.depth = depth;
+        this.budget = budget;
+        this.allSources = allSources;
+        this.options = options;
         this.logger = logger;
         logger.log(Level.INFO, "Reading synsets from \"{0}\"", synsetsFilename);
         logger.log(Level.INFO, "Writing neighbours to \"{0}\"", neighboursFilename);
+        if (options.getShard().getCount() > 1) logger.log(Level.INFO, "Processing the shard {0}", options.getShard().toString());
         logger.log(Level.INFO, "Extracting in {0} steps", Integer.toString(depth));
+        if (!budget.isUnlimited()) logger.log(Level.INFO, "Limiting every walk: {0}", budget.toString());
+        if (options.getPrefetch() > 0 && graph instanceof BabelNetGraph) {
+            logger.log(Level.INFO, "Loading up to {0} synset(s) ahead", Integer.toString(options.getPrefetch()));
+        }
+        if (options.getPreviousSynsetsFilename() != null) {
+            logger.log(Level.INFO, "Updating neighbours from \"{0}\" of \"{1}\"", new String[]{options.getPreviousFilename(), options.getPreviousSynsetsFilename()});
+        }
     }
 
     /**
@@ -50,67 +110,109 @@ public class NeighboursAction {
      * @throws IOException when an I/O error has occurred.
      */
     public void run() throws IOException {
-        final List<String> allSynsets = synchronizedList(readSynsets(synsetsFilename));
+        final Increment increment = Increment.open(options, synsetsFilename, recordsFilename, logger);
+        final Shard shard = options.getShard();
 
-        writeRecords(neighboursFilename, neighboursCSV ->
-                allSynsets.parallelStream().forEach(synsetID -> {
-                    logger.log(Level.INFO, "Processing {0}", synsetID);
+        try (final Journal journal = options.isResume() ? Journal.open(neighboursFilename + ".journal") : null) {
+            if (journal != null) {
+                logger.log(Level.INFO, "Resuming after {0} completed synset(s)", Integer.toString(journal.size()));
+            }
+            final Stage stage = allSources ? prepare(increment, journal) : new NeighboursStage(graph, depth, budget);
+            final long total = increment.size() / shard.getCount() - ((journal == null) ? 0 : journal.size());
+            try (final Closeable progress = Metrics.getInstance().start(logger, total)) {
+                readSynsets(synsetsFilename, synsets -> {
                     try {
-                        final BabelSynset synset = babelnet.getSynset(new BabelSynsetID(synsetID));
-                        final Map<String, Integer> neighbours = walk(synset);
-                        if (!neighbours.isEmpty()) {
-                            synchronized (neighboursCSV) {
-                                neighboursCSV.printRecord(
-                                        synsetID,
-                                        neighbours.entrySet().stream().
-                                                map(entry -> entry.getKey() + ':' + entry.getValue()).
-                                                collect(joining(","))
-                                );
-                            }
-                        }
-                        logger.log(Level.INFO, "Processed {0}, found {1} neighbour(s)",
-                                new String[]{synsetID, Integer.toString(neighbours.size())});
-                    } catch (final InvalidBabelSynsetIDException | IOException ex) {
+                        // The locality mode skips the completed synsets itself, since it numbers all of them.
+                        run(increment.remaining(synsets, shard, options.isLocality() ? null : journal), stage, journal, increment.getOutputFilename());
+                    } catch (final IOException ex) {
                         throw new RuntimeException(ex);
                     }
-                })
-        );
+                });
+            }
+        }
+
+        increment.finish(options.isResume());
+
+        if (!recordsFilename.equals(neighboursFilename)) {
+            logger.log(Level.INFO, "Encoding the ego networks to \"{0}\"", neighboursFilename);
+            EgoNetworks.write(recordsFilename, neighboursFilename);
+            if (!options.isResume()) Files.delete(Paths.get(recordsFilename));
+        }
 
         logger.log(Level.INFO, "Done");
     }
 
     /**
-     * Extract the graph ego network by walking the graph. The initial node is not included into the results.
-     * Each distance provided with the plus sign if the neighbour is reachable through the hypernym,
-     * otherwise, the minus sign is written.
+     * Collect the sources and compute the neighbourhoods of the lower depths needed by them.
      *
-     * @param source the initial node.
-     * @return the mapping between the neighbours and their distances.
-     * @throws IOException
+     * @param increment the difference from the previous run.
+     * @param journal   the progress journal, or null.
+     * @return the stage combining the computed neighbourhoods.
+     * @throws IOException when an I/O error has occurred.
      */
-    private Map<String, Integer> walk(BabelSynset source) throws IOException {
-        final Map<String, Integer> neighbours = new HashMap<>();
-        neighbours.put(source.getId().toString(), 0);
-
-        final Queue<BabelSynset> queue = new LinkedList<>();
-        queue.add(source);
-
-        while (!queue.isEmpty()) {
-            final BabelSynset synset = queue.remove();
-            final List<BabelSynsetIDRelation> edges = synset.getEdges(BabelPointer.ANY_HYPERNYM, BabelPointer.ANY_HYPONYM);
-            for (final BabelSynsetIDRelation edge : edges) {
-                int step = neighbours.get(synset.getId().toString());
-                if (!neighbours.containsKey(edge.getTarget()) && Math.abs(step) < depth) {
-                    int level = (step == 0) ?
-                            (edge.getPointer().isHypernym() ? +1 : -1) :
-                            Integer.signum(step) * (Math.abs(step) + 1);
-                    neighbours.put(edge.getTarget(), level);
-                    queue.add(edge.getBabelSynsetIDTarget().toBabelSynset());
-                }
+    private Stage prepare(Increment increment, Journal journal) throws IOException {
+        final Taxonomy taxonomy = (Taxonomy) graph;
+        final Neighbourhoods neighbourhoods = new Neighbourhoods(taxonomy, depth);
+        readSynsets(synsetsFilename, synsets -> increment.remaining(synsets, options.getShard(), journal).forEachRemaining(synsetID ->
+                neighbourhoods.addSource(taxonomy.lookup(synsetID))));
+
+        while (!neighbourhoods.isPrepared()) {
+            final int[] nodes = neighbourhoods.begin();
+            logger.log(Level.INFO, "Computing {0} neighbourhood(s) of depth {1}", new String[]{
+                    Integer.toString(nodes.length), Integer.toString(neighbourhoods.getRadius() + 1)});
+            final List<int[]> batches = new ArrayList<>();
+            for (int i = 0; i < nodes.length; i += NODES_BATCH_SIZE) {
+                batches.add(Arrays.copyOfRange(nodes, i, Math.min(i + NODES_BATCH_SIZE, nodes.length)));
             }
+            Workers.forEach(batches, (batch, index) -> {
+                for (final int node : batch) neighbourhoods.expand(node);
+            });
+            neighbourhoods.finish();
         }
 
-        neighbours.remove(source.getId().toString());
-        return neighbours;
+        return new NeighboursStage(graph, neighbourhoods::newTraversal);
+    }
+
+    /**
+     * Process the given synsets as they are read and write the outputs.
+     *
+     * @param synsets  the synset IDs, including the completed ones in the locality mode.
+     * @param stage    the neighbours stage.
+     * @param journal  the progress journal, or null.
+     * @param filename the text output file.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private void run(Iterator<String> synsets, Stage stage, Journal journal, String filename) throws IOException {
+        // Only the graph queried from BabelNet benefits from the source synsets loaded ahead.
+        final BabelNet babelnet = (options.getPrefetch() > 0 && graph instanceof BabelNetGraph) ? ((BabelNetGraph) graph).getBabelNet() : null;
+        if (options.isLocality()) {
+            Locality.run(babelnet, synsets, stage, this::process, journal, filename, options, BATCH_SIZE, logger);
+            return;
+        }
+        try (final Prefetcher<String> prefetcher = new Prefetcher<>(babelnet, synsets, Function.identity(), options.getPrefetch())) {
+            writeRecords(filename, options.getWindow(), journal, writer ->
+                    Workers.forEach(prefetcher, BATCH_SIZE, (item, index) ->
+                            process(writer, index, item.getSynsetID(), csv -> stage.print(item.getSynsetID(), item.getSynset(), csv)), writer::abort)
+            );
+        }
+    }
+
+    /**
+     * Process the synset and write its records.
+     *
+     * @param writer   the writer.
+     * @param index    the sequence number of the synset.
+     * @param synsetID the synset ID.
+     * @param printer  the printer of the synset records.
+     */
+    private void process(RecordWriter writer, long index, String synsetID, RecordWriter.Printer printer) {
+        logger.log(Level.FINE, "Processing {0}", synsetID);
+        try {
+            writer.write(index, synsetID, printer);
+            Metrics.getInstance().item();
+            logger.log(Level.FINE, "Processed {0}", synsetID);
+        } catch (final IOException ex) {
+            throw new RuntimeException(ex);
+        }
     }
 }
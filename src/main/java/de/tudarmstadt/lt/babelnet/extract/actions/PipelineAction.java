@@ -0,0 +1,102 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.io.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import de.tudarmstadt.lt.babelnet.extract.stages.Stage;
+import it.uniroma1.lcl.babelnet.BabelNet;
+import it.uniroma1.lcl.jlt.util.Language;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static de.tudarmstadt.lt.babelnet.extract.Resource.openRecords;
+
+/**
+ * The pipeline action fuses the synsets, senses, and neighbours actions. Every synset having senses
+ * in the given language is loaded from BabelNet once and passed to all the stages, each of which writes
+ * its own file. Hence, the index is traversed once instead of being queried by every action separately.
+ *
+ * @author Dmitry Ustalov
+ */
+public class PipelineAction {
+    private static final int BATCH_SIZE = 256;
+
+    private final BabelNet babelnet;
+    private final Language language;
+    private final Map<String, Stage> stages;
+    private final int window;
+    private final Logger logger;
+
+    /**
+     * Initialize the action.
+     *
+     * @param babelnet the BabelNet instance.
+     * @param language the language.
+     * @param stages   the stages mapped from their output files.
+     * @param window   the size of the reorder window, or zero for the unordered output.
+     * @param logger   the logger instance.
+     */
+    public PipelineAction(BabelNet babelnet, Language language, Map<String, Stage> stages, int window, Logger logger) {
+        this.babelnet = babelnet;
+        this.language = language;
+        this.stages = new LinkedHashMap<>(stages);
+        this.window = window;
+        this.logger = logger;
+        for (final Map.Entry<String, Stage> entry : this.stages.entrySet()) {
+            logger.log(Level.INFO, "Writing {0} to \"{1}\"",
+                    new String[]{entry.getValue().getClass().getSimpleName(), entry.getKey()});
+        }
+    }
+
+    /**
+     * Process the data and write the outputs.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void run() throws IOException {
+        final List<Stage> allStages = new ArrayList<>(stages.values());
+        final List<RecordWriter> writers = new ArrayList<>();
+        try {
+            for (final String filename : stages.keySet()) writers.add(openRecords(filename, window));
+
+            try (final Closeable progress = Metrics.getInstance().start(logger, 0)) {
+                Workers.forEach(babelnet.getSynsetIterator(), BATCH_SIZE, (synset, index) -> {
+                    try {
+                        final String synsetID = synset.getId().toString();
+                        final long start = System.nanoTime();
+                        final boolean present = !synset.getSenses(language).isEmpty();
+                        Metrics.getInstance().record(Metrics.Call.GET_SENSES, System.nanoTime() - start);
+                        for (int i = 0; i < writers.size(); i++) {
+                            final Stage stage = allStages.get(i);
+                            writers.get(i).write(index, csv -> {
+                                if (present) stage.print(synsetID, synset, csv);
+                            });
+                        }
+                        Metrics.getInstance().item();
+                        if (present) logger.log(Level.FINE, "Extracted {0}", synsetID);
+                    } catch (final IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }, ex -> writers.forEach(writer -> writer.abort(ex)));
+            }
+        } finally {
+            IOException failure = null;
+            for (final RecordWriter writer : writers) {
+                try {
+                    writer.close();
+                } catch (final IOException ex) {
+                    if (failure == null) failure = ex;
+                }
+            }
+            if (failure != null) throw failure;
+        }
+
+        logger.log(Level.INFO, "Done");
+    }
+}
@@ -0,0 +1,194 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import de.tudarmstadt.lt.babelnet.extract.stages.Stage;
+import it.uniroma1.lcl.babelnet.BabelNet;
+import it.uniroma1.lcl.babelnet.BabelSynset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * The lookahead stage loading the synsets from BabelNet ahead of the workers. The items are read from the input
+ * in small batches, every batch is loaded by the dedicated pool of loader threads, and the loaded synsets are
+ * returned in the input order, so the workers spend their time on the stages instead of waiting for the disk.
+ * At most the given number of synsets are being loaded or waiting in the stage at any moment. The returned synsets
+ * are then held in the batches of {@link Workers} until they are processed, i.e., up to two queued batches and one
+ * running batch per thread, which are about three times its read-ahead of 4096 items, so the loaded synsets in memory
+ * are bounded by the lookahead plus that amount. The number of the loaded synsets waiting in the stage is reported
+ * to the metrics as {@code prefetch}: if it stays close to zero, the lookahead is too short to hide the disk latency.
+ * <p>
+ * If the lookahead is zero, the items are passed through as they are read, and every synset is loaded
+ * by the worker requesting it. If the BabelNet instance is null, the synsets are not loaded at all.
+ * The iterator is accessed by a single thread only.
+ *
+ * @param <T> the item type.
+ * @author Dmitry Ustalov
+ */
+final class Prefetcher<T> implements Iterator<Prefetcher.Item<T>>, Closeable {
+    private static final int BATCH_SIZE = 16, MAX_LOADERS = 64;
+
+    private final BabelNet babelnet;
+    private final Iterator<T> items;
+    private final Function<T, String> synsetIDs;
+    private final int batches;
+    private final ExecutorService loaders;
+    private final Deque<Future<List<Item<T>>>> loading = new ArrayDeque<>();
+    private final AtomicInteger ready = new AtomicInteger();
+    private final IntSupplier gauge = ready::get;
+    private Iterator<Item<T>> current = Collections.emptyIterator();
+
+    /**
+     * Initialize the stage and start loading the first synsets.
+     *
+     * @param babelnet  the BabelNet instance, or null if the synsets are not needed.
+     * @param items     the items.
+     * @param synsetIDs the function extracting the synset ID from the item.
+     * @param lookahead the maximal number of synsets loaded ahead of the workers, or zero.
+     */
+    Prefetcher(BabelNet babelnet, Iterator<T> items, Function<T, String> synsetIDs, int lookahead) {
+        this.babelnet = babelnet;
+        this.items = items;
+        this.synsetIDs = synsetIDs;
+        if (babelnet == null || lookahead <= 0) {
+            this.batches = 0;
+            this.loaders = null;
+        } else {
+            this.batches = (lookahead + BATCH_SIZE - 1) / BATCH_SIZE;
+            final AtomicInteger counter = new AtomicInteger();
+            this.loaders = Executors.newFixedThreadPool(Math.min(batches, MAX_LOADERS), runnable -> {
+                final Thread thread = new Thread(runnable, "Prefetcher-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            Metrics.getInstance().addGauge("prefetch", gauge);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (loaders == null) return items.hasNext();
+        while (!current.hasNext()) {
+            fill();
+            final Future<List<Item<T>>> batch = loading.poll();
+            if (batch == null) return false;
+            current = await(batch).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Item<T> next() {
+        if (loaders == null) {
+            final T item = items.next();
+            return new Item<>(this, item, synsetIDs.apply(item));
+        }
+        if (!hasNext()) throw new NoSuchElementException();
+        ready.decrementAndGet();
+        final Item<T> item = current.next();
+        fill();
+        return item;
+    }
+
+    private void fill() {
+        while (loading.size() < batches && items.hasNext()) {
+            final List<Item<T>> batch = new ArrayList<>(BATCH_SIZE);
+            while (batch.size() < BATCH_SIZE && items.hasNext()) {
+                final T item = items.next();
+                batch.add(new Item<>(this, item, synsetIDs.apply(item)));
+            }
+            loading.add(loaders.submit(() -> {
+                for (final Item<T> item : batch) {
+                    item.synset = Stage.load(babelnet, item.synsetID);
+                    item.loaded = true;
+                }
+                ready.addAndGet(batch.size());
+                return batch;
+            }));
+        }
+    }
+
+    private static <T> List<Item<T>> await(Future<List<Item<T>>> batch) {
+        try {
+            return batch.get();
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) throw new UncheckedIOException((IOException) ex.getCause());
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error) throw (Error) ex.getCause();
+            throw new IllegalStateException(ex.getCause());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Stop loading the synsets and the loader threads.
+     */
+    @Override
+    public void close() {
+        if (loaders == null) return;
+        for (final Future<List<Item<T>>> batch : loading) batch.cancel(true);
+        loading.clear();
+        current = Collections.emptyIterator();
+        loaders.shutdownNow();
+        Metrics.getInstance().removeGauge("prefetch", gauge);
+    }
+
+    /**
+     * The item and its synset.
+     *
+     * @param <T> the item type.
+     */
+    static final class Item<T> {
+        private final Prefetcher<T> prefetcher;
+        private final T item;
+        private final String synsetID;
+        private BabelSynset synset;
+        private boolean loaded;
+
+        private Item(Prefetcher<T> prefetcher, T item, String synsetID) {
+            this.prefetcher = prefetcher;
+            this.item = item;
+            this.synsetID = synsetID;
+        }
+
+        /**
+         * Get the item.
+         *
+         * @return the item.
+         */
+        T get() {
+            return item;
+        }
+
+        /**
+         * Get the synset ID of the item.
+         *
+         * @return the synset ID.
+         */
+        String getSynsetID() {
+            return synsetID;
+        }
+
+        /**
+         * Get the synset, loading it if it has not been loaded ahead.
+         *
+         * @return the synset, or null if it is not present or not needed.
+         * @throws IOException when an I/O error has occurred or the synset ID is malformed.
+         */
+        BabelSynset getSynset() throws IOException {
+            if (!loaded && prefetcher.babelnet != null) {
+                synset = Stage.load(prefetcher.babelnet, synsetID);
+                loaded = true;
+            }
+            return synset;
+        }
+    }
+}
@@ -1,30 +1,40 @@
 package de.tudarmstadt.lt.babelnet.extract.actions;
 
-import it.uniroma1.lcl.babelnet.*;
+import de.tudarmstadt.lt.babelnet.extract.data.Shard;
+import de.tudarmstadt.lt.babelnet.extract.io.Journal;
+import de.tudarmstadt.lt.babelnet.extract.io.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import de.tudarmstadt.lt.babelnet.extract.stages.LemmaIndex;
+import de.tudarmstadt.lt.babelnet.extract.stages.SensesStage;
+import de.tudarmstadt.lt.babelnet.extract.stages.Stage;
+import it.uniroma1.lcl.babelnet.BabelNet;
 import it.uniroma1.lcl.jlt.util.Language;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Iterator;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static de.tudarmstadt.lt.babelnet.extract.Resource.readSynsets;
 import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
-import static java.util.Collections.synchronizedList;
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toMap;
 
 /**
- * The senses action extracts the corresponding sense lemmas and their frequencies.
+ * The senses action extracts the corresponding sense lemmas and their frequencies. Optionally, the inverted index
+ * from the lemmas to the synsets is built in the same pass and written after processing all the synsets.
+ * The synsets are loaded either by the workers or ahead of them by the {@link Prefetcher}. Given the synsets
+ * and the senses of the previous run, only the added synsets are processed, see {@link Increment}.
  *
  * @author Dmitry Ustalov
  */
 public class SensesAction {
+    private static final int BATCH_SIZE = 256;
+
     private final BabelNet babelnet;
     private final Language language;
-    private final String synsetsFilename, sensesFilename;
+    private final String synsetsFilename, sensesFilename, indexFilename;
+    private final ExtractionOptions options;
     private final Logger logger;
 
     /**
@@ -34,16 +44,29 @@ public class SensesAction {
      * @param language        the language.
      * @param synsetsFilename the synsets input file.
      * @param sensesFilename  the senses output file.
+     * @param indexFilename   the lemma index output file, or null.
+     * @param options         the options of processing the synsets.
      * @param logger          the logger instance.
+     * @throws IllegalArgumentException when only one of the previous files is given or the previous senses file
+     *                                  is the senses file.
      */
-    public SensesAction(BabelNet babelnet, Language language, String synsetsFilename, String sensesFilename, Logger logger) {
+    public SensesAction(BabelNet babelnet, Language language, String synsetsFilename, String sensesFilename, String indexFilename, ExtractionOptions options, Logger logger) {
+        Increment.check(options, sensesFilename);
         this.babelnet = babelnet;
         this.language = language;
         this.synsetsFilename = synsetsFilename;
         this.sensesFilename = sensesFilename;
+        this.indexFilename = indexFilename;
+        this.options = options;
         this.logger = logger;
         logger.log(Level.INFO, "Reading synsets from \"{0}\"", synsetsFilename);
         logger.log(Level.INFO, "Writing senses to \"{0}\"", sensesFilename);
+        if (indexFilename != null) logger.log(Level.INFO, "Writing lemma index to \"{0}\"", indexFilename);
+        if (options.getShard().getCount() > 1) logger.log(Level.INFO, "Processing the shard {0}", options.getShard().toString());
+        if (options.getPrefetch() > 0) logger.log(Level.INFO, "Loading up to {0} synset(s) ahead", Integer.toString(options.getPrefetch()));
+        if (options.getPreviousSynsetsFilename() != null) {
+            logger.log(Level.INFO, "Updating senses from \"{0}\" of \"{1}\"", new String[]{options.getPreviousFilename(), options.getPreviousSynsetsFilename()});
+        }
     }
 
     /**
@@ -52,33 +75,85 @@ public class SensesAction {
      * @throws IOException when an I/O error has occurred.
      */
     public void run() throws IOException {
-        final List<String> allSynsets = synchronizedList(readSynsets(synsetsFilename));
+        final Increment increment = Increment.open(options, synsetsFilename, sensesFilename, logger);
+        final Shard shard = options.getShard();
+
+        try (final Journal journal = options.isResume() ? Journal.open(sensesFilename + ".journal") : null) {
+            if (journal != null) {
+                logger.log(Level.INFO, "Resuming after {0} completed synset(s)", Integer.toString(journal.size()));
+            }
+            if ((journal != null || increment.isPartial()) && indexFilename != null) {
+                logger.log(Level.WARNING, "The lemma index will contain only the synsets processed in this run");
+            }
+            final LemmaIndex index = (indexFilename == null) ? null : new LemmaIndex();
+            final Stage stage = new SensesStage(language, index);
+            final long total = increment.size() / shard.getCount() - ((journal == null) ? 0 : journal.size());
+            try (final Closeable progress = Metrics.getInstance().start(logger, total)) {
+                readSynsets(synsetsFilename, synsets -> {
+                    try {
+                        // The locality mode skips the completed synsets itself, since it numbers all of them.
+                        run(increment.remaining(synsets, shard, options.isLocality() ? null : journal), stage, journal, increment.getOutputFilename());
+                    } catch (final IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                });
+            }
 
-        writeRecords(sensesFilename, csv ->
-                allSynsets.parallelStream().forEach(synsetID -> {
+            if (index != null) {
+                writeRecords(indexFilename, csv -> {
                     try {
-                        final BabelSynset synset = babelnet.getSynset(new BabelSynsetID(synsetID));
-                        final Map<String, Integer> senses = synset.getSenses(language).stream().
-                                collect(toMap(sense -> sense.getSimpleLemma().replaceAll("_", " "),
-                                        BabelSense::getFrequency,
-                                        (v1, v2) -> v1,
-                                        () -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER)));
-                        if (!senses.isEmpty()) {
-                            synchronized (csv) {
-                                csv.printRecord(
-                                        synsetID,
-                                        senses.entrySet().stream().map(entry -> entry.getKey() + ':' + entry.getValue()).
-                                                collect(joining(","))
-                                );
-                            }
-                        }
-                        logger.log(Level.INFO, "Extracted {0}", synsetID);
-                    } catch (final InvalidBabelSynsetIDException | IOException ex) {
+                        index.print(csv);
+                    } catch (final IOException ex) {
                         throw new RuntimeException(ex);
                     }
-                })
-        );
+                });
+                logger.log(Level.INFO, "Indexed {0} lemma(s) in {1} occurrence(s)", new String[]{
+                        Integer.toString(index.getLemmaCount()), Integer.toString(index.size())});
+            }
+        }
+
+        increment.finish(options.isResume());
 
         logger.log(Level.INFO, "Done");
     }
+
+    /**
+     * Process the given synsets as they are read and write the outputs.
+     *
+     * @param synsets  the synset IDs, including the completed ones in the locality mode.
+     * @param stage    the senses stage.
+     * @param journal  the progress journal, or null.
+     * @param filename the output file.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private void run(Iterator<String> synsets, Stage stage, Journal journal, String filename) throws IOException {
+        if (options.isLocality()) {
+            Locality.run(babelnet, synsets, stage, this::process, journal, filename, options, BATCH_SIZE, logger);
+            return;
+        }
+        try (final Prefetcher<String> prefetcher = new Prefetcher<>(babelnet, synsets, Function.identity(), options.getPrefetch())) {
+            writeRecords(filename, options.getWindow(), journal, writer ->
+                    Workers.forEach(prefetcher, BATCH_SIZE, (item, index) ->
+                            process(writer, index, item.getSynsetID(), csv -> stage.print(item.getSynsetID(), item.getSynset(), csv)), writer::abort)
+            );
+        }
+    }
+
+    /**
+     * Process the synset and write its records.
+     *
+     * @param writer   the writer.
+     * @param index    the sequence number of the synset.
+     * @param synsetID the synset ID.
+     * @param printer  the printer of the synset records.
+     */
+    private void process(RecordWriter writer, long index, String synsetID, RecordWriter.Printer printer) {
+        try {
+            writer.write(index, synsetID, printer);
+            Metrics.getInstance().item();
+            logger.log(Level.FINE, "Extracted {0}", synsetID);
+        } catch (final IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 }
@@ -0,0 +1,290 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.tudarmstadt.lt.babelnet.extract.Resource;
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import de.tudarmstadt.lt.babelnet.extract.graph.Budget;
+import de.tudarmstadt.lt.babelnet.extract.graph.Graph;
+import de.tudarmstadt.lt.babelnet.extract.io.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import de.tudarmstadt.lt.babelnet.extract.stages.*;
+import it.uniroma1.lcl.babelnet.BabelNet;
+import it.uniroma1.lcl.babelnet.data.BabelPOS;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * The serve action keeps BabelNet open and answers the queries over HTTP on the loopback interface. Every query
+ * is a POST request containing the items, one per line, and the response contains the records in the same order
+ * and format as the output of the corresponding action once the items have been processed by the worker threads.
+ * The formatted records are kept in the LRU cache, so the repeated queries are answered without BabelNet.
+ * <ul>
+ * <li>{@code /senses?language=en} returns the records of the senses action for the given synset IDs;</li>
+ * <li>{@code /neighbours?depth=2} returns the records of the neighbours action for the given synset IDs, every walk
+ * limited by the given budget and the depth not exceeding the configured one;</li>
+ * <li>{@code /synsets?language=en} returns the records of the synsets action for the given synset IDs;</li>
+ * <li>{@code /lemmas?language=en&amp;pos=noun} returns the lemmas and the IDs of the synsets containing them
+ * like the clusters action does.</li>
+ * </ul>
+ *
+ * @author Dmitry Ustalov
+ */
+public class ServeAction {
+    private static final int BATCH_SIZE = 64;
+    private static final int WINDOW = 4096;
+
+    private final BabelNet babelnet;
+    private final Graph graph;
+    private final Language language;
+    private final BabelPOS pos;
+    private final int depth, port;
+    private final Budget budget;
+    private final ResultCache cache;
+    private final Logger logger;
+    private final ConcurrentMap<Integer, Stage> neighbours = new ConcurrentHashMap<>();
+    private final CountDownLatch stopped = new CountDownLatch(1), finished = new CountDownLatch(1);
+
+    /**
+     * Initialize the action.
+     *
+     * @param babelnet the BabelNet instance.
+     * @param graph    the graph for the neighbour queries.
+     * @param language the default language.
+     * @param pos      the default part of speech.
+     * @param depth    the default and the maximal graph depth.
+     * @param budget   the limits of every walk.
+     * @param port     the port to listen on.
+     * @param capacity the capacity of the result cache.
+     * @param logger   the logger instance.
+     */
+    public ServeAction(BabelNet babelnet, Graph graph, Language language, BabelPOS pos, int depth, Budget budget, int port, int capacity, Logger logger) {
+        this.babelnet = babelnet;
+        this.graph = graph;
+        this.language = language;
+        this.pos = pos;
+        this.depth = depth;
+        this.budget = budget;
+        this.port = port;
+        this.cache = new ResultCache(capacity);
+        this.logger = logger;
+    }
+
+    /**
+     * Start the server and wait until it is stopped, e.g., when the JVM is shutting down on Ctrl+C.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void run() throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "Server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+
+        server.createContext("/senses", exchange -> handle(exchange, true, parameters -> {
+            final Language queryLanguage = language(parameters);
+            final Stage stage = new SensesStage(queryLanguage);
+            return (synsetID, csv) -> csv.getOut().append(cache.get("senses\t" + queryLanguage + '\t' + synsetID,
+                    records -> stage.print(synsetID, Stage.load(babelnet, synsetID), records)));
+        }));
+        server.createContext("/synsets", exchange -> handle(exchange, true, parameters -> {
+            final Language queryLanguage = language(parameters);
+            final Stage stage = new LemmasStage(queryLanguage);
+            return (synsetID, csv) -> csv.getOut().append(cache.get("synsets\t" + queryLanguage + '\t' + synsetID,
+                    records -> stage.print(synsetID, Stage.load(babelnet, synsetID), records)));
+        }));
+        server.createContext("/neighbours", exchange -> handle(exchange, true, parameters -> {
+            final int queryDepth = parameters.containsKey("depth") ? Integer.parseInt(parameters.get("depth")) : depth;
+            if (queryDepth < 1 || queryDepth > depth) {
+                throw new IllegalArgumentException("The depth must be between 1 and " + depth);
+            }
+            final Stage stage = neighbours.computeIfAbsent(queryDepth, key -> new NeighboursStage(graph, key, budget));
+            return (synsetID, csv) -> csv.getOut().append(cache.get("neighbours\t" + queryDepth + '\t' + synsetID,
+                    records -> stage.print(synsetID, null, records)));
+        }));
+        server.createContext("/lemmas", exchange -> handle(exchange, false, parameters -> {
+            final Language queryLanguage = language(parameters);
+            final BabelPOS queryPOS = parameters.containsKey("pos") ?
+                    Objects.requireNonNull(Resource.POS.get(parameters.get("pos").toLowerCase()), "Unknown part of speech") : pos;
+            return (lemma, csv) -> csv.getOut().append(cache.get("lemmas\t" + queryLanguage + '\t' + queryPOS + '\t' + lemma,
+                    records -> records.printRecord(lemma,
+                            LemmaCache.lookup(babelnet, lemma, queryLanguage, queryPOS).stream().collect(joining(",")))));
+        }));
+        server.createContext("/status", exchange -> {
+            final byte[] body = (Metrics.getInstance().summarize() + "; cache: " + cache.getHits() + " hit(s), " +
+                    cache.getMisses() + " miss(es)\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (final OutputStream stream = exchange.getResponseBody()) {
+                stream.write(body);
+            }
+        });
+
+        // The shutdown waits for the server to stop, so the queries in progress are not cut off silently.
+        final Thread hook = new Thread(() -> {
+            stop();
+            try {
+                finished.await();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, "ServeAction-shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+
+        try (final Closeable progress = Metrics.getInstance().start(logger, 0)) {
+            server.start();
+            logger.log(Level.INFO, "Listening on http://{0}:{1}/", new String[]{
+                    server.getAddress().getHostString(), Integer.toString(server.getAddress().getPort())});
+            stopped.await();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.stop(1);
+            executor.shutdownNow();
+            finished.countDown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (final IllegalStateException ex) {
+                // The JVM is already shutting down and is running the hook.
+            }
+        }
+
+        logger.log(Level.INFO, "Done");
+    }
+
+    /**
+     * Stop the server, which is done by the shutdown hook registered by {@link #run()}.
+     */
+    public void stop() {
+        stopped.countDown();
+    }
+
+    private Language language(Map<String, String> parameters) {
+        if (!parameters.containsKey("language")) return language;
+        return Objects.requireNonNull(Resource.LANGUAGES.get(parameters.get("language").toLowerCase()), "Unknown language");
+    }
+
+    /**
+     * Process the items of the query in parallel and send the records in the order of the items. The records
+     * are collected in memory and sent once all the items are processed, so the status tells whether the query
+     * has succeeded: the malformed synset IDs are rejected before processing with the status 400, and any failure
+     * during processing results in the status 500 instead of the truncated records.
+     *
+     * @param exchange  the HTTP exchange.
+     * @param synsetIDs whether the items are synset IDs.
+     * @param query     the function creating the item handler from the query parameters.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private void handle(HttpExchange exchange, boolean synsetIDs, Query query) throws IOException {
+        try {
+            final Handler handler;
+            final List<String> items = new ArrayList<>();
+            try {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, "The items must be sent using POST, one per line\n");
+                    return;
+                }
+                handler = query.create(parameters(exchange.getRequestURI().getRawQuery()));
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    final String item = line.trim();
+                    if (item.isEmpty()) continue;
+                    if (synsetIDs && SynsetIDs.encode(item) < 0) {
+                        throw new IllegalArgumentException("Malformed synset ID on line " + (items.size() + 1) + ": " + item);
+                    }
+                    items.add(item);
+                }
+            } catch (final RuntimeException ex) {
+                respond(exchange, 400, ex.getMessage() + '\n');
+                return;
+            }
+
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (final RecordWriter records = new RecordWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), WINDOW)) {
+                Workers.forEach(items.iterator(), BATCH_SIZE, (item, index) -> {
+                    try {
+                        records.write(index, csv -> handler.handle(item, csv));
+                        Metrics.getInstance().item();
+                    } catch (final IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }, records::abort);
+            } catch (final IOException | RuntimeException ex) {
+                logger.log(Level.WARNING, "The query {0} has failed: {1}", new Object[]{exchange.getRequestURI(), ex});
+                respond(exchange, 500, "The query has failed: " + ex + '\n');
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/tab-separated-values; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.size());
+            try (final OutputStream stream = exchange.getResponseBody()) {
+                body.writeTo(stream);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        final byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (final OutputStream stream = exchange.getResponseBody()) {
+            stream.write(body);
+        }
+    }
+
+    private static Map<String, String> parameters(String query) {
+        final Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) return parameters;
+        for (final String pair : query.split("&")) {
+            final int equals = pair.indexOf('=');
+            try {
+                if (equals < 0) {
+                    parameters.put(URLDecoder.decode(pair, "UTF-8"), "");
+                } else {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+                }
+            } catch (final UnsupportedEncodingException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * The function creating the item handler from the query parameters.
+     */
+    @FunctionalInterface
+    private interface Query {
+        Handler create(Map<String, String> parameters);
+    }
+
+    /**
+     * The handler printing the records of the queried item.
+     */
+    @FunctionalInterface
+    private interface Handler {
+        void handle(String item, CSVPrinter csv) throws IOException;
+    }
+}
@@ -0,0 +1,65 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import it.uniroma1.lcl.babelnet.BabelNet;
+import it.uniroma1.lcl.babelnet.BabelSynsetIDRelation;
+import it.uniroma1.lcl.babelnet.data.BabelPointer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The snapshot action dumps the hypernym/hyponym graph of BabelNet into the compact taxonomy file.
+ *
+ * @author Dmitry Ustalov
+ */
+public class SnapshotAction {
+    private final BabelNet babelnet;
+    private final String taxonomyFilename;
+    private final Logger logger;
+
+    /**
+     * Initialize the action.
+     *
+     * @param babelnet         the BabelNet instance.
+     * @param taxonomyFilename the taxonomy output file.
+     * @param logger           the logger instance.
+     */
+    public SnapshotAction(BabelNet babelnet, String taxonomyFilename, Logger logger) {
+        this.babelnet = babelnet;
+        this.taxonomyFilename = taxonomyFilename;
+        this.logger = logger;
+        logger.log(Level.INFO, "Writing taxonomy to \"{0}\"", taxonomyFilename);
+    }
+
+    /**
+     * Process the data and write the outputs.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void run() throws IOException {
+        final Taxonomy.Builder builder = new Taxonomy.Builder();
+
+        try (final Closeable progress = Metrics.getInstance().start(logger, 0)) {
+            babelnet.getSynsetIterator().forEachRemaining(synset -> {
+                final String synsetID = synset.getId().toString();
+                builder.addNode(synsetID);
+                final long start = System.nanoTime();
+                final List<BabelSynsetIDRelation> edges = synset.getEdges(BabelPointer.ANY_HYPERNYM, BabelPointer.ANY_HYPONYM);
+                Metrics.getInstance().record(Metrics.Call.GET_EDGES, System.nanoTime() - start);
+                for (final BabelSynsetIDRelation edge : edges) {
+                    builder.addEdge(synsetID, edge.getTarget(), edge.getPointer().isHypernym());
+                }
+                Metrics.getInstance().item();
+                logger.log(Level.FINE, "Extracted {0}", synsetID);
+            });
+        }
+
+        builder.write(taxonomyFilename);
+        logger.log(Level.INFO, "Done");
+    }
+}
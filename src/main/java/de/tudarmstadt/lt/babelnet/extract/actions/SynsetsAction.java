@@ -1,44 +1,71 @@
 package de.tudarmstadt.lt.babelnet.extract.actions;
 
+import de.tudarmstadt.lt.babelnet.extract.io.RecordWriter;
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import de.tudarmstadt.lt.babelnet.extract.stages.LemmasStage;
+import de.tudarmstadt.lt.babelnet.extract.stages.Stage;
 import it.uniroma1.lcl.babelnet.BabelNet;
-import it.uniroma1.lcl.babelnet.BabelSense;
 import it.uniroma1.lcl.jlt.util.Language;
 
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static de.tudarmstadt.lt.babelnet.extract.Resource.writeRecords;
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toSet;
+import static de.tudarmstadt.lt.babelnet.extract.Resource.openRecords;
 
 /**
- * The synsets action extracts the list of synsets for the given language.
+ * The synsets action extracts the list of synsets for the given languages, writing one file per language
+ * during a single pass over BabelNet. The synset iterator is read by the calling thread in batches, and
+ * the senses are extracted by the worker threads.
  *
  * @author Dmitry Ustalov
  */
 public class SynsetsAction {
+    private static final int BATCH_SIZE = 256;
+
     private final BabelNet babelnet;
-    private final Language language;
-    private final String synsetsFilename;
+    private final Map<Language, String> synsetsFilenames;
+    private final int window;
     private final Logger logger;
 
     /**
-     * Initialize the action.
+     * Initialize the action. In case of several languages, the language code is inserted into the output file
+     * name before its extension, e.g., {@code synsets.txt} becomes {@code synsets.en.txt}.
      *
      * @param babelnet        the BabelNet instance.
-     * @param language        the language.
+     * @param languages       the languages.
      * @param synsetsFilename the synsets output file.
+     * @param window          the size of the reorder window, or zero for the unordered output.
      * @param logger          the logger instance.
      */
-    public SynsetsAction(BabelNet babelnet, Language language, String synsetsFilename, Logger logger) {
+    public SynsetsAction(BabelNet babelnet, Collection<Language> languages, String synsetsFilename, int window, Logger logger) {
         this.babelnet = babelnet;
-        this.language = language;
-        this.synsetsFilename = synsetsFilename;
+        this.synsetsFilenames = new LinkedHashMap<>();
+        for (final Language language : languages) {
+            synsetsFilenames.put(language, (languages.size() == 1) ? synsetsFilename : localize(synsetsFilename, language));
+        }
+        this.window = window;
         this.logger = logger;
-        logger.log(Level.INFO, "Writing synsets to \"{0}\"", synsetsFilename);
+        for (final Map.Entry<Language, String> entry : synsetsFilenames.entrySet()) {
+            logger.log(Level.INFO, "Writing {0} synsets to \"{1}\"", new String[]{entry.getKey().toString(), entry.getValue()});
+        }
+    }
+
+    /**
+     * Insert the language code into the file name before its extension.
+     *
+     * @param filename the file name.
+     * @param language the language.
+     * @return the file name for the language.
+     */
+    private static String localize(String filename, Language language) {
+        final int separator = filename.lastIndexOf(File.separatorChar) + 1;
+        final int dot = filename.indexOf('.', separator);
+        final String code = language.toString().toLowerCase();
+        return (dot < 0) ? filename + '.' + code : filename.substring(0, dot) + '.' + code + filename.substring(dot);
     }
 
     /**
@@ -47,23 +74,41 @@ public class SynsetsAction {
      * @throws IOException when an I/O error has occurred.
      */
     public void run() throws IOException {
-        writeRecords(synsetsFilename, csv -> {
-            babelnet.getSynsetIterator().forEachRemaining(synset -> {
-                try {
-                    final List<BabelSense> senses = synset.getSenses(language);
-                    if (senses.isEmpty()) return;
+        final Map<Language, Stage> stages = new HashMap<>();
+        for (final Language language : synsetsFilenames.keySet()) stages.put(language, new LemmasStage(language));
 
-                    final String synsetID = synset.getId().toString();
+        final Map<Language, RecordWriter> writers = new LinkedHashMap<>();
+        try {
+            for (final Map.Entry<Language, String> entry : synsetsFilenames.entrySet()) {
+                writers.put(entry.getKey(), openRecords(entry.getValue(), window));
+            }
 
-                    final Set<String> lemmas = senses.stream().map(BabelSense::getSimpleLemma).collect(toSet());
-                    csv.printRecord(synsetID, lemmas.size(), lemmas.stream().collect(joining(", ")));
-
-                    logger.log(Level.INFO, "Extracted {0}", synsetID);
+            try (final Closeable progress = Metrics.getInstance().start(logger, 0)) {
+                Workers.forEach(babelnet.getSynsetIterator(), BATCH_SIZE, (synset, index) -> {
+                    try {
+                        final String synsetID = synset.getId().toString();
+                        for (final Map.Entry<Language, RecordWriter> entry : writers.entrySet()) {
+                            final Stage stage = stages.get(entry.getKey());
+                            entry.getValue().write(index, csv -> stage.print(synsetID, synset, csv));
+                        }
+                        Metrics.getInstance().item();
+                        logger.log(Level.FINE, "Extracted {0}", synsetID);
+                    } catch (final IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }, ex -> writers.values().forEach(writer -> writer.abort(ex)));
+            }
+        } finally {
+            IOException failure = null;
+            for (final RecordWriter writer : writers.values()) {
+                try {
+                    writer.close();
                 } catch (final IOException ex) {
-                    throw new RuntimeException(ex);
+                    if (failure == null) failure = ex;
                 }
-            });
-        });
+            }
+            if (failure != null) throw failure;
+        }
 
         logger.log(Level.INFO, "Done");
     }
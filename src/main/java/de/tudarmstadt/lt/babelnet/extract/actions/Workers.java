@@ -0,0 +1,270 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * The parallel loops used by the actions. Unlike parallel streams, which split the input into large
+ * contiguous ranges, the items are handed out to the threads in the input order. Hence, the items
+ * being processed at any moment are close to each other, which is what the ordered writer needs.
+ * <p>
+ * The loops run on the common fork-join pool unless another executor is configured. Since the BabelNet
+ * lookups mostly wait for the disk, it makes sense to run more threads than there are cores. Every thread
+ * takes the next item only after finishing the previous one, and the number of the items read ahead is bounded,
+ * so the memory usage does not grow with the number of threads.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Workers {
+    private static final Batch<?> END = new Batch<>(-1, Collections.emptyList());
+    private static final int READ_AHEAD = 4096;
+
+    private static volatile ExecutorService executor = ForkJoinPool.commonPool();
+    private static volatile int threads = ForkJoinPool.commonPool().getParallelism();
+
+    private Workers() {
+    }
+
+    /**
+     * The kinds of the executors.
+     */
+    public enum Kind {
+        /**
+         * The dedicated fork-join pool.
+         */
+        FORKJOIN,
+        /**
+         * The fixed thread pool.
+         */
+        FIXED,
+        /**
+         * The virtual threads, which are available since Java 21.
+         */
+        VIRTUAL
+    }
+
+    /**
+     * Configure the executor used by all the subsequent loops.
+     *
+     * @param kind    the kind of the executor.
+     * @param threads the number of worker threads.
+     * @throws IllegalArgumentException when the number of threads is not positive.
+     * @throws IllegalStateException    when the virtual threads are not supported by the JVM.
+     */
+    public static synchronized void configure(Kind kind, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("The number of threads must be positive");
+        final ExecutorService created;
+        switch (kind) {
+            case FORKJOIN:
+                created = new ForkJoinPool(threads);
+                break;
+            case FIXED:
+                final AtomicInteger counter = new AtomicInteger();
+                created = Executors.newFixedThreadPool(threads, runnable -> {
+                    final Thread thread = new Thread(runnable, "Worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                break;
+            case VIRTUAL:
+                try {
+                    created = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+                    throw new IllegalStateException("The virtual threads are not supported by this JVM", ex);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown executor: " + kind);
+        }
+        if (executor != ForkJoinPool.commonPool()) executor.shutdown();
+        executor = created;
+        Workers.threads = threads;
+    }
+
+    /**
+     * Get the number of worker threads.
+     *
+     * @return the number of threads.
+     */
+    public static int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Process the items in parallel using the configured executor and the calling thread.
+     *
+     * @param items the items.
+     * @param f     the consumer receiving the item and its index.
+     * @param <T>   the item type.
+     */
+    static <T> void forEach(List<T> items, ObjLongConsumer<T> f) {
+        final AtomicInteger cursor = new AtomicInteger();
+        final Runnable task = () -> {
+            try {
+                for (int i = cursor.getAndIncrement(); i < items.size(); i = cursor.getAndIncrement()) {
+                    f.accept(items.get(i), i);
+                }
+            } catch (final RuntimeException | Error ex) {
+                cursor.set(items.size());
+                throw ex;
+            }
+        };
+
+        final List<Future<?>> tasks = submit(task);
+
+        Throwable failure = null;
+        try {
+            task.run();
+        } catch (final RuntimeException | Error ex) {
+            failure = ex;
+        }
+        failure = join(tasks, failure);
+
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+    }
+
+    /**
+     * Process the items from the iterator in parallel using the configured executor. The calling thread reads
+     * the items into batches and puts them into the bounded queue, from which the worker threads take them, so
+     * the iterator is accessed by a single thread only and the memory usage is bounded. The batches are made
+     * smaller when there are many threads, so all of them are busy. The queue depth is reported to the metrics
+     * as {@code workers}.
+     *
+     * @param items     the items.
+     * @param batchSize the maximal number of items per batch.
+     * @param f         the consumer receiving the item and its index.
+     * @param <T>       the item type.
+     */
+    static <T> void forEach(Iterator<T> items, int batchSize, ObjLongConsumer<T> f) {
+        forEach(items, batchSize, f, ex -> {
+        });
+    }
+
+    /**
+     * Process the items from the iterator in parallel as {@link #forEach(Iterator, int, ObjLongConsumer)} does,
+     * passing the first failure to the given callback as soon as it happens. Since the items after the failed one
+     * are not processed, the ordered writers waiting for them have to be aborted by the callback.
+     *
+     * @param items     the items.
+     * @param batchSize the maximal number of items per batch.
+     * @param f         the consumer receiving the item and its index.
+     * @param abort     the callback receiving the first failure.
+     * @param <T>       the item type.
+     */
+    static <T> void forEach(Iterator<T> items, int batchSize, ObjLongConsumer<T> f, Consumer<Throwable> abort) {
+        final int size = Math.max(1, Math.min(batchSize, READ_AHEAD / threads));
+        final BlockingQueue<Batch<?>> queue = new ArrayBlockingQueue<>(2 * threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Consumer<Throwable> fail = ex -> {
+            if (failure.compareAndSet(null, ex)) abort.accept(ex);
+        };
+
+        final Runnable task = () -> {
+            try {
+                for (Batch<?> batch = queue.take(); batch != END && failure.get() == null; batch = queue.take()) {
+                    @SuppressWarnings("unchecked") final List<T> batchItems = (List<T>) batch.items;
+                    for (int i = 0; i < batchItems.size(); i++) f.accept(batchItems.get(i), batch.start + i);
+                }
+            } catch (final RuntimeException | Error ex) {
+                fail.accept(ex);
+            } catch (final InterruptedException ex) {
+                fail.accept(new IllegalStateException(ex));
+            }
+        };
+
+        final List<Future<?>> tasks = submit(task);
+
+        final IntSupplier depth = queue::size;
+        Metrics.getInstance().addGauge("workers", depth);
+        try {
+            long start = 0;
+            while (items.hasNext() && failure.get() == null) {
+                final List<T> batch = new ArrayList<>(size);
+                while (batch.size() < size && items.hasNext()) batch.add(items.next());
+                put(queue, new Batch<>(start, batch), failure);
+                start += batch.size();
+            }
+        } catch (final RuntimeException | Error ex) {
+            fail.accept(ex);
+        } finally {
+            try {
+                for (int i = 0; i < tasks.size(); i++) {
+                    while (!queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                        if (failure.get() != null) queue.clear();
+                    }
+                }
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail.accept(new IllegalStateException(ex));
+            }
+            final Throwable joined = join(tasks, null);
+            if (joined != null) fail.accept(joined);
+            Metrics.getInstance().removeGauge("workers", depth);
+        }
+
+        final Throwable ex = failure.get();
+        if (ex instanceof RuntimeException) throw (RuntimeException) ex;
+        if (ex instanceof Error) throw (Error) ex;
+    }
+
+    private static List<Future<?>> submit(Runnable task) {
+        final ExecutorService service = executor;
+        final List<Future<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) tasks.add(service.submit(task));
+        return tasks;
+    }
+
+    private static Throwable join(List<Future<?>> tasks, Throwable failure) {
+        boolean interrupted = false;
+        for (final Future<?> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (final ExecutionException ex) {
+                    if (failure == null) failure = ex.getCause();
+                    break;
+                } catch (final InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        return failure;
+    }
+
+    private static void put(BlockingQueue<Batch<?>> queue, Batch<?> batch, AtomicReference<Throwable> failure) {
+        try {
+            while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) return;
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * The batch of items and the index of the first one.
+     *
+     * @param <T> the item type.
+     */
+    private static final class Batch<T> {
+        private final long start;
+        private final List<T> items;
+
+        private Batch(long start, List<T> items) {
+            this.start = start;
+            this.items = items;
+        }
+    }
+}
@@ -2,10 +2,9 @@ package de.tudarmstadt.lt.babelnet.extract.data;
 
 import org.inferred.freebuilder.FreeBuilder;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import static java.util.stream.Collectors.toList;
-
 /**
  * The representation of the cluster in Chinese Whispers.
  *
@@ -28,24 +27,24 @@ public interface Cluster {
     List<String> getSenses();
 
     /**
-     * Get the cluster lemmas, i.e., the cluster senses with the labels removed.
+     * Get the cluster lemmas, i.e., the cluster senses with the labels removed and lowercased. The lemmas are
+     * computed on every call instead of being stored in the cluster, since they are needed only once.
      *
      * @return the lemmas.
      */
-    List<String> getLemmas();
+    default List<String> getLemmas() {
+        final List<String> senses = getSenses();
+        final List<String> lemmas = new ArrayList<>(senses.size());
+        for (final String sense : senses) {
+            final int label = sense.indexOf('#');
+            lemmas.add(((label < 0) ? sense : sense.substring(0, label)).toLowerCase());
+        }
+        return lemmas;
+    }
 
     /**
      * A builder for the Cluster instances.
      */
     class Builder extends Cluster_Builder {
-        /**
-         * Build a Cluster instance.
-         *
-         * @return the new cluster instance.
-         */
-        public Cluster build() {
-            addAllLemmas(getSenses().stream().map(sense -> sense.split("#")[0].toLowerCase()).collect(toList()));
-            return super.build();
-        }
     }
 }
@@ -0,0 +1,83 @@
+package de.tudarmstadt.lt.babelnet.extract.data;
+
+/**
+ * The shard of the synsets processed by a single node of a multi-node run. The synsets are partitioned by the stable
+ * 64-bit hash code of their IDs, so every node computes the same partitioning independently of the input order,
+ * the machine, and the number of threads.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Shard {
+    /**
+     * The shard containing all the synsets.
+     */
+    public static final Shard ALL = new Shard(0, 1);
+
+    private final int index, count;
+
+    private Shard(int index, int count) {
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Parse the shard specification like {@code 0/4}, i.e., the zero-based shard index and the number of shards.
+     *
+     * @param spec the specification.
+     * @return the shard.
+     * @throws IllegalArgumentException when the specification is malformed.
+     */
+    public static Shard parse(String spec) {
+        final int slash = spec.indexOf('/');
+        if (slash < 0) throw new IllegalArgumentException("The shard must be specified as index/count: " + spec);
+        final int index, count;
+        try {
+            index = Integer.parseInt(spec.substring(0, slash).trim());
+            count = Integer.parseInt(spec.substring(slash + 1).trim());
+        } catch (final NumberFormatException ex) {
+            throw new IllegalArgumentException("The shard must be specified as index/count: " + spec, ex);
+        }
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("The shard index must be from 0 to count - 1: " + spec);
+        }
+        return new Shard(index, count);
+    }
+
+    /**
+     * Get the zero-based index of the shard.
+     *
+     * @return the index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the number of shards.
+     *
+     * @return the number of shards.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Check whether the synset belongs to this shard.
+     *
+     * @param synsetID the synset ID.
+     * @return true if the synset belongs to this shard.
+     */
+    public boolean contains(String synsetID) {
+        if (count == 1) return true;
+        long h = SynsetIDs.hash(synsetID);
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return Long.remainderUnsigned(h, count) == index;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,52 @@
+package de.tudarmstadt.lt.babelnet.extract.data;
+
+/**
+ * The routines for the compact representation of the BabelNet synset IDs like {@code bn:00000001n}.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class SynsetIDs {
+    private static final String PREFIX = "bn:", POS = "nvar";
+
+    private SynsetIDs() {
+    }
+
+    /**
+     * Encode the synset ID as a long number. The well-formed IDs are encoded as the offset shifted left by two bits
+     * with the part of speech in the lowest bits, so their codes are unique, non-negative, and follow the order
+     * of the offsets. Any other string is encoded as its negative 64-bit hash code.
+     *
+     * @param synsetID the synset ID.
+     * @return the code.
+     */
+    public static long encode(String synsetID) {
+        final int length = synsetID.length();
+        if (length > PREFIX.length() + 1 && length <= PREFIX.length() + 19 && synsetID.startsWith(PREFIX)) {
+            final int pos = POS.indexOf(synsetID.charAt(length - 1));
+            long offset = 0;
+            int i = PREFIX.length();
+            for (; i < length - 1; i++) {
+                final char c = synsetID.charAt(i);
+                if (c < '0' || c > '9') break;
+                offset = offset * 10 + (c - '0');
+            }
+            if (pos >= 0 && i == length - 1 && offset < (1L << 61)) return offset << 2 | pos;
+        }
+        return hash(synsetID) | Long.MIN_VALUE;
+    }
+
+    /**
+     * Compute the 64-bit FNV-1a hash code of the string, which is stable across the runs and the machines.
+     *
+     * @param s the string.
+     * @return the hash code.
+     */
+    public static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,148 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import it.uniroma1.lcl.babelnet.*;
+import it.uniroma1.lcl.babelnet.data.BabelPointer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The hypernym/hyponym graph queried from BabelNet. The synset IDs are interned to nodes in the order
+ * of their first appearance, and the edges are resolved through the shared edge cache. Only the edges are bounded
+ * by the capacity of the cache: the nodes have to stay valid for the lifetime of the graph, so the interned synset IDs
+ * are never released, and their memory grows with the number of the distinct synsets reached by the walks, up to
+ * the number of the synsets in BabelNet.
+ *
+ * @author Dmitry Ustalov
+ */
+public class BabelNetGraph implements Graph {
+    private static final int CHUNK_BITS = 16, CHUNK_SIZE = 1 << CHUNK_BITS, CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final BabelNet babelnet;
+    private final EdgeCache cache;
+    private final Map<String, Integer> nodes = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String[]> names = new AtomicReferenceArray<>(1 << (31 - CHUNK_BITS));
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Initialize the graph.
+     *
+     * @param babelnet the BabelNet instance.
+     * @param cache    the edge cache.
+     */
+    public BabelNetGraph(BabelNet babelnet, EdgeCache cache) {
+        this.babelnet = babelnet;
+        this.cache = cache;
+    }
+
+    /**
+     * Get the BabelNet instance.
+     *
+     * @return the BabelNet instance.
+     */
+    public BabelNet getBabelNet() {
+        return babelnet;
+    }
+
+    /**
+     * Get the edge cache.
+     *
+     * @return the edge cache.
+     */
+    public EdgeCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Intern the given synset ID. Since any synset ID is accepted, this method never returns -1.
+     *
+     * @param synsetID the synset ID.
+     * @return the node.
+     */
+    @Override
+    public int lookup(String synsetID) {
+        final Integer node = nodes.get(synsetID);
+        if (node != null) return node;
+        return nodes.computeIfAbsent(synsetID, id -> {
+            final int created = size.getAndIncrement();
+            String[] chunk = names.get(created >>> CHUNK_BITS);
+            if (chunk == null) {
+                names.compareAndSet(created >>> CHUNK_BITS, null, new String[CHUNK_SIZE]);
+                chunk = names.get(created >>> CHUNK_BITS);
+            }
+            chunk[created & CHUNK_MASK] = id;
+            return created;
+        });
+    }
+
+    /**
+     * Get the synset ID of the given node. The node must be obtained from this graph.
+     *
+     * @param node the node.
+     * @return the synset ID.
+     */
+    @Override
+    public String getId(int node) {
+        return names.get(node >>> CHUNK_BITS)[node & CHUNK_MASK];
+    }
+
+    /**
+     * Copy the edges of the given node to the buffer if it is large enough. The edges are in the same order
+     * as returned by BabelNet.
+     *
+     * @param node   the node.
+     * @param buffer the buffer to fill.
+     * @return the number of edges, which might be larger than the buffer.
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public int getEdges(int node, int[] buffer) throws IOException {
+        int[] edges = cache.get(node);
+        if (edges == null) edges = cache.put(node, fetch(node));
+        if (edges.length <= buffer.length) System.arraycopy(edges, 0, buffer, 0, edges.length);
+        return edges.length;
+    }
+
+    /**
+     * Put the edges of the already loaded synset into the edge cache unless they are cached already,
+     * so the synset is not loaded again during the walk.
+     *
+     * @param synsetID the synset ID.
+     * @param synset   the synset.
+     */
+    public void put(String synsetID, BabelSynset synset) {
+        final int node = lookup(synsetID);
+        if (!cache.contains(node)) cache.put(node, edges(synset));
+    }
+
+    private int[] fetch(int node) throws IOException {
+        final BabelSynset synset;
+        final long start = System.nanoTime();
+        try {
+            synset = babelnet.getSynset(new BabelSynsetID(getId(node)));
+        } catch (final InvalidBabelSynsetIDException ex) {
+            throw new IOException(ex);
+        } finally {
+            Metrics.getInstance().record(Metrics.Call.GET_SYNSET, System.nanoTime() - start);
+        }
+        return edges(synset);
+    }
+
+    private int[] edges(BabelSynset synset) {
+        if (synset == null) return new int[0];
+        final long start = System.nanoTime();
+        final List<BabelSynsetIDRelation> relations = synset.getEdges(BabelPointer.ANY_HYPERNYM, BabelPointer.ANY_HYPONYM);
+        Metrics.getInstance().record(Metrics.Call.GET_EDGES, System.nanoTime() - start);
+        final int[] edges = new int[relations.size()];
+        for (int i = 0; i < edges.length; i++) {
+            final BabelSynsetIDRelation relation = relations.get(i);
+            edges[i] = Graph.edge(lookup(relation.getTarget()), relation.getPointer().isHypernym());
+        }
+        return edges;
+    }
+}
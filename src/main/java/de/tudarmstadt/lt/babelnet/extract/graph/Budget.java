@@ -0,0 +1,84 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+/**
+ * The limits of a single walk, which bound its time and memory when the walk reaches the hubs having many edges.
+ * The walk exceeding any of the limits is stopped, and its ego network is marked as truncated. The breadth-first
+ * order guarantees that the truncated ego network contains the nearest neighbours found before the stop.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Budget {
+    /**
+     * The budget imposing no limits.
+     */
+    public static final Budget UNLIMITED = new Budget(0, 0, 0);
+
+    private final int maxVisited, maxFanOut;
+    private final long maxNanos;
+
+    private Budget(int maxVisited, int maxFanOut, long maxNanos) {
+        this.maxVisited = maxVisited;
+        this.maxFanOut = maxFanOut;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Create the budget. The zero value of any limit means that it is not imposed.
+     *
+     * @param maxVisited the maximal number of neighbours.
+     * @param maxFanOut  the maximal number of edges to the unvisited nodes followed from a single node.
+     * @param maxMillis  the maximal duration of the walk in milliseconds.
+     * @return the budget.
+     * @throws IllegalArgumentException when any of the limits is negative.
+     */
+    public static Budget of(int maxVisited, int maxFanOut, long maxMillis) {
+        if (maxVisited < 0 || maxFanOut < 0 || maxMillis < 0) {
+            throw new IllegalArgumentException("The walk limits must not be negative");
+        }
+        if (maxVisited == 0 && maxFanOut == 0 && maxMillis == 0) return UNLIMITED;
+        return new Budget(maxVisited, maxFanOut, maxMillis * 1_000_000L);
+    }
+
+    /**
+     * Check whether no limits are imposed.
+     *
+     * @return true if the budget is unlimited.
+     */
+    public boolean isUnlimited() {
+        return this == UNLIMITED;
+    }
+
+    /**
+     * Get the maximal number of neighbours.
+     *
+     * @return the number of neighbours, or {@link Integer#MAX_VALUE} if not limited.
+     */
+    public int getMaxVisited() {
+        return (maxVisited == 0) ? Integer.MAX_VALUE : maxVisited;
+    }
+
+    /**
+     * Get the maximal number of edges followed from a single node.
+     *
+     * @return the number of edges, or {@link Integer#MAX_VALUE} if not limited.
+     */
+    public int getMaxFanOut() {
+        return (maxFanOut == 0) ? Integer.MAX_VALUE : maxFanOut;
+    }
+
+    /**
+     * Get the maximal duration of the walk.
+     *
+     * @return the duration in nanoseconds, or zero if not limited.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "visited " + ((maxVisited == 0) ? "unlimited" : Integer.toString(maxVisited)) +
+                ", fan-out " + ((maxFanOut == 0) ? "unlimited" : Integer.toString(maxFanOut)) +
+                ", time " + ((maxNanos == 0) ? "unlimited" : (maxNanos / 1_000_000L) + " ms");
+    }
+}
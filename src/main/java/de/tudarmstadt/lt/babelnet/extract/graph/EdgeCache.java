@@ -0,0 +1,190 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The concurrent size-bounded cache of the hypernym/hyponym edges keyed by node. Since the nodes are dense,
+ * the entries are stored in lazily allocated chunks indexed by node, so the lookups need neither hashing
+ * nor boxing. Every entry counts the number of requests, which approximates the fan-in of the node, so the
+ * eviction keeps the frequently reached nodes like the top-level hypernyms. The counters are halved once
+ * the number of evicted entries reaches the capacity to let the cache adapt to the changing working set.
+ *
+ * @author Dmitry Ustalov
+ */
+public class EdgeCache {
+    private static final int CHUNK_BITS = 16, CHUNK_SIZE = 1 << CHUNK_BITS, CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int capacity;
+    private final AtomicReferenceArray<AtomicReferenceArray<Entry>> chunks = new AtomicReferenceArray<>(1 << (31 - CHUNK_BITS));
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private int evictedSinceAging = 0;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    /**
+     * Initialize the cache.
+     *
+     * @param capacity the maximal number of entries.
+     */
+    public EdgeCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("The capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the cached edges of the given node.
+     *
+     * @param node the node.
+     * @return the edges or null if there is no such entry.
+     */
+    public int[] get(int node) {
+        final AtomicReferenceArray<Entry> chunk = chunks.get(node >>> CHUNK_BITS);
+        final Entry entry = (chunk == null) ? null : chunk.get(node & CHUNK_MASK);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.requests.incrementAndGet();
+        return entry.edges;
+    }
+
+    /**
+     * Check whether the edges of the given node are cached without counting the request as a hit or a miss.
+     *
+     * @param node the node.
+     * @return true if there is such entry.
+     */
+    public boolean contains(int node) {
+        final AtomicReferenceArray<Entry> chunk = chunks.get(node >>> CHUNK_BITS);
+        return chunk != null && chunk.get(node & CHUNK_MASK) != null;
+    }
+
+    /**
+     * Put the edges of the given node, evicting the rarely requested entries if the cache is full.
+     *
+     * @param node  the node.
+     * @param edges the edges.
+     * @return the edges.
+     */
+    public int[] put(int node, int[] edges) {
+        AtomicReferenceArray<Entry> chunk = chunks.get(node >>> CHUNK_BITS);
+        if (chunk == null) {
+            chunks.compareAndSet(node >>> CHUNK_BITS, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = chunks.get(node >>> CHUNK_BITS);
+        }
+        if (chunk.getAndSet(node & CHUNK_MASK, new Entry(edges)) == null && size.incrementAndGet() > capacity &&
+                evictionLock.tryLock()) {
+            try {
+                evict();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Shrink the cache to 90% of its capacity by removing the least requested entries and age the counters
+     * when needed. This method is called under the eviction lock.
+     */
+    private void evict() {
+        final int excess = size.get() - capacity * 9 / 10;
+        if (excess <= 0) return;
+
+        int[] requests = new int[size.get()];
+        int count = 0;
+        for (int i = 0; i < chunks.length(); i++) {
+            final AtomicReferenceArray<Entry> chunk = chunks.get(i);
+            if (chunk == null) continue;
+            for (int j = 0; j < CHUNK_SIZE; j++) {
+                final Entry entry = chunk.get(j);
+                if (entry == null) continue;
+                if (count == requests.length) requests = Arrays.copyOf(requests, count * 2);
+                requests[count++] = entry.requests.get();
+            }
+        }
+        if (count == 0) return;
+        Arrays.sort(requests, 0, count);
+        final int threshold = requests[Math.min(excess, count) - 1];
+
+        int removed = 0;
+        for (int i = 0; i < chunks.length() && removed < excess; i++) {
+            final AtomicReferenceArray<Entry> chunk = chunks.get(i);
+            if (chunk == null) continue;
+            for (int j = 0; j < CHUNK_SIZE && removed < excess; j++) {
+                final Entry entry = chunk.get(j);
+                if (entry != null && entry.requests.get() <= threshold && chunk.compareAndSet(j, entry, null)) {
+                    size.decrementAndGet();
+                    removed++;
+                }
+            }
+        }
+        evictions.add(removed);
+
+        evictedSinceAging += removed;
+        if (evictedSinceAging >= capacity) {
+            for (int i = 0; i < chunks.length(); i++) {
+                final AtomicReferenceArray<Entry> chunk = chunks.get(i);
+                if (chunk == null) continue;
+                for (int j = 0; j < CHUNK_SIZE; j++) {
+                    final Entry entry = chunk.get(j);
+                    if (entry != null) entry.requests.set(entry.requests.get() >> 1);
+                }
+            }
+            evictedSinceAging = 0;
+        }
+    }
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of evicted entries.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * The cached edges with the request counter.
+     */
+    private static final class Entry {
+        private final int[] edges;
+        private final AtomicInteger requests = new AtomicInteger(1);
+
+        private Entry(int[] edges) {
+            this.edges = edges;
+        }
+    }
+}
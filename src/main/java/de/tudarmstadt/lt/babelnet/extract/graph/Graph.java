@@ -0,0 +1,68 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.io.IOException;
+
+/**
+ * The hypernym/hyponym graph with the synsets mapped to dense integer nodes. Every edge is encoded as the target
+ * node shifted left by one bit, the lowest bit is set for hypernyms. The implementations are thread-safe.
+ *
+ * @author Dmitry Ustalov
+ */
+public interface Graph {
+    /**
+     * Get the target node of the edge.
+     *
+     * @param edge the edge.
+     * @return the target node.
+     */
+    static int target(int edge) {
+        return edge >>> 1;
+    }
+
+    /**
+     * Check whether the edge points to the hypernym.
+     *
+     * @param edge the edge.
+     * @return true if the target is a hypernym, false if it is a hyponym.
+     */
+    static boolean isHypernym(int edge) {
+        return (edge & 1) != 0;
+    }
+
+    /**
+     * Encode the edge.
+     *
+     * @param target   the target node.
+     * @param hypernym whether the target is a hypernym.
+     * @return the edge.
+     */
+    static int edge(int target, boolean hypernym) {
+        return target << 1 | (hypernym ? 1 : 0);
+    }
+
+    /**
+     * Find the node corresponding to the given synset ID.
+     *
+     * @param synsetID the synset ID.
+     * @return the node or -1 if the synset is not present.
+     */
+    int lookup(String synsetID);
+
+    /**
+     * Get the synset ID of the given node.
+     *
+     * @param node the node.
+     * @return the synset ID.
+     */
+    String getId(int node);
+
+    /**
+     * Copy the edges of the given node to the buffer if it is large enough.
+     *
+     * @param node   the node.
+     * @param buffer the buffer to fill.
+     * @return the number of edges, which might be larger than the buffer.
+     * @throws IOException when an I/O error has occurred.
+     */
+    int getEdges(int node, int[] buffer) throws IOException;
+}
@@ -0,0 +1,122 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.util.Arrays;
+
+/**
+ * The open-addressing map from non-negative integers to integers with linear probing. It is designed
+ * to be cleared and reused many times without allocating memory. The occupied slots are remembered,
+ * so clearing the map costs as much as its entries, not its capacity, which might have grown large once.
+ *
+ * @author Dmitry Ustalov
+ */
+class IntIntMap {
+    private static final int EMPTY = -1;
+
+    private int[] keys, values, occupied;
+    private int mask, size;
+
+    /**
+     * Initialize the map.
+     *
+     * @param capacity the initial capacity, which is rounded up to the power of two.
+     */
+    IntIntMap(int capacity) {
+        final int length = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+        keys = new int[length];
+        values = new int[length];
+        occupied = new int[length / 2];
+        mask = length - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private static int hash(int key) {
+        final int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Get the value of the given key.
+     *
+     * @param key          the key.
+     * @param defaultValue the value to return if the key is absent.
+     * @return the value.
+     */
+    int get(int key, int defaultValue) {
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+            if (keys[i] == EMPTY) return defaultValue;
+        }
+    }
+
+    /**
+     * Associate the value with the given key.
+     *
+     * @param key   the non-negative key.
+     * @param value the value.
+     */
+    void put(int key, int value) {
+        if (2 * (size + 1) > keys.length) grow();
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                occupied[size++] = i;
+                return;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+    }
+
+    private void grow() {
+        final int[] oldKeys = keys, oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        final int[] oldOccupied = occupied;
+        occupied = new int[keys.length / 2];
+        mask = keys.length - 1;
+        final int oldSize = size;
+        size = 0;
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldSize; i++) put(oldKeys[oldOccupied[i]], oldValues[oldOccupied[i]]);
+    }
+
+    /**
+     * Remove all the entries keeping the allocated memory.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) keys[occupied[i]] = EMPTY;
+        size = 0;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the key of the entry, the entries are numbered from zero to {@link #size()} in the insertion order.
+     *
+     * @param index the entry index.
+     * @return the key.
+     */
+    int keyAt(int index) {
+        return keys[occupied[index]];
+    }
+
+    /**
+     * Get the value of the entry, the entries are numbered from zero to {@link #size()} in the insertion order.
+     *
+     * @param index the entry index.
+     * @return the value.
+     */
+    int valueAt(int index) {
+        return values[occupied[index]];
+    }
+}
@@ -0,0 +1,230 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The all-sources computation of the ego networks over the taxonomy snapshot. Instead of walking the graph
+ * from every source separately, the balls, i.e., the sets of the nodes within the given distance from a node,
+ * are computed level by level: the ball of radius {@code d} of a node is the union of the balls of radius
+ * {@code d - 1} of its targets. Thus, every ball is computed once and shared by all the sources reaching it,
+ * and only the balls needed by the sources are computed.
+ * <p>
+ * The results are the same as produced by {@link Walker} up to the order of the neighbours. The breadth-first
+ * walk assigns the sign of the first edge of the source through which the neighbour is discovered, which is the
+ * first edge, in the edge order, whose target is at the shortest distance from the neighbour.
+ * <p>
+ * The levels are prepared by calling {@link #begin()}, then {@link #expand(int)} for every returned node,
+ * possibly from many threads, and then {@link #finish()}, until {@link #isPrepared()} returns true. After that,
+ * the ego networks are extracted by the traversals created by {@link #newTraversal()}.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Neighbourhoods {
+    private static final int DISTANCE_BITS = 4, DISTANCE_MASK = (1 << DISTANCE_BITS) - 1;
+
+    private final Taxonomy taxonomy;
+    private final int depth;
+    private final BitSet sources = new BitSet();
+    private final ThreadLocal<Expander> expanders;
+    private int[][] balls, next;
+    private int radius = 1;
+
+    /**
+     * Initialize the computation.
+     *
+     * @param taxonomy the taxonomy.
+     * @param depth    the graph depth.
+     * @throws IllegalArgumentException when the depth or the taxonomy is too large.
+     */
+    public Neighbourhoods(Taxonomy taxonomy, int depth) {
+        if (depth < 1 || depth > DISTANCE_MASK) {
+            throw new IllegalArgumentException("The depth must be between 1 and " + DISTANCE_MASK);
+        }
+        if (taxonomy.size() > Integer.MAX_VALUE >>> DISTANCE_BITS) {
+            throw new IllegalArgumentException("The taxonomy is too large: " + taxonomy.size() + " nodes");
+        }
+        this.taxonomy = taxonomy;
+        this.depth = depth;
+        this.expanders = ThreadLocal.withInitial(Expander::new);
+    }
+
+    /**
+     * Add the node whose ego network will be extracted. This method is not thread-safe and must be called
+     * before preparing the levels.
+     *
+     * @param node the node or -1 if the synset is not present in the graph.
+     */
+    public void addSource(int node) {
+        if (node >= 0) sources.set(node);
+    }
+
+    /**
+     * Check whether all the balls needed by the sources are computed.
+     *
+     * @return true if the traversals can be created.
+     */
+    public boolean isPrepared() {
+        return radius >= depth - 1;
+    }
+
+    /**
+     * Get the radius of the balls computed so far.
+     *
+     * @return the radius.
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Start computing the next level. The balls of the returned nodes have to be computed by {@link #expand(int)}.
+     *
+     * @return the nodes, which are at the distance of {@code depth - radius - 1} steps from the sources.
+     */
+    public int[] begin() {
+        if (isPrepared()) throw new IllegalStateException("All the levels are already prepared");
+        BitSet frontier = sources;
+        for (int step = radius + 1; step < depth; step++) {
+            final BitSet reached = new BitSet(taxonomy.size());
+            for (int node = frontier.nextSetBit(0); node >= 0; node = frontier.nextSetBit(node + 1)) {
+                final int offset = taxonomy.getEdgeOffset(node), degree = taxonomy.getDegree(node);
+                for (int i = 0; i < degree; i++) reached.set(Graph.target(taxonomy.getEdge(offset + i)));
+            }
+            frontier = reached;
+        }
+        next = new int[taxonomy.size()][];
+        return frontier.stream().toArray();
+    }
+
+    /**
+     * Compute the ball of the node on the level started by {@link #begin()}. This method is thread-safe
+     * as long as every node is expanded once.
+     *
+     * @param node the node.
+     */
+    public void expand(int node) {
+        final Expander expander = expanders.get();
+        expander.ball.clear();
+        expander.ball.put(node, 0);
+        final int offset = taxonomy.getEdgeOffset(node), degree = taxonomy.getDegree(node);
+        for (int i = 0; i < degree; i++) {
+            expander.merge(Graph.target(taxonomy.getEdge(offset + i)));
+        }
+        next[node] = expander.toArray();
+    }
+
+    /**
+     * Finish the level started by {@link #begin()}. The balls of the previous level are released.
+     */
+    public void finish() {
+        balls = next;
+        next = null;
+        radius++;
+    }
+
+    /**
+     * Create the traversal extracting the ego networks of the sources using the computed balls.
+     *
+     * @return the traversal.
+     */
+    public Traversal newTraversal() {
+        if (!isPrepared()) throw new IllegalStateException("The levels are not prepared");
+        return new Cursor();
+    }
+
+    /**
+     * Pass every node of the ball to the visitor.
+     *
+     * @param node    the ball center.
+     * @param radius  the ball radius.
+     * @param visitor the visitor receiving the node and its distance from the center.
+     */
+    private void forEach(int node, int radius, Visitor visitor) {
+        visitor.visit(node, 0);
+        if (radius == 0) return;
+        if (radius == 1) {
+            final int offset = taxonomy.getEdgeOffset(node), degree = taxonomy.getDegree(node);
+            for (int i = 0; i < degree; i++) visitor.visit(Graph.target(taxonomy.getEdge(offset + i)), 1);
+            return;
+        }
+        for (final int entry : balls[node]) visitor.visit(entry >>> DISTANCE_BITS, entry & DISTANCE_MASK);
+    }
+
+    /**
+     * The visitor of the ball nodes.
+     */
+    @FunctionalInterface
+    private interface Visitor {
+        void visit(int node, int distance);
+    }
+
+    /**
+     * The thread-local state of the ball computation.
+     */
+    private final class Expander {
+        private final IntIntMap ball = new IntIntMap(64);
+        private final Visitor visitor = (node, distance) -> {
+            final int known = ball.get(node, Integer.MAX_VALUE);
+            if (distance + 1 < known) ball.put(node, distance + 1);
+        };
+
+        private void merge(int target) {
+            forEach(target, radius, visitor);
+        }
+
+        private int[] toArray() {
+            final int[] entries = new int[ball.size() - 1];
+            int size = 0;
+            for (int i = 0; i < ball.size(); i++) {
+                final int node = ball.keyAt(i), distance = ball.valueAt(i);
+                if (distance > 0) entries[size++] = node << DISTANCE_BITS | distance;
+            }
+            return (size == entries.length) ? entries : Arrays.copyOf(entries, size);
+        }
+    }
+
+    /**
+     * The traversal combining the balls of the source targets.
+     */
+    private final class Cursor implements Traversal {
+        private final IntIntMap levels = new IntIntMap(64);
+        private int source, sign;
+        private final Visitor visitor = (node, distance) -> {
+            if (node == source) return;
+            final int known = levels.get(node, 0);
+            if (known == 0 || distance + 1 < Math.abs(known)) levels.put(node, sign * (distance + 1));
+        };
+
+        @Override
+        public int walk(int source) {
+            levels.clear();
+            if (source < 0) return 0;
+
+            this.source = source;
+            final int offset = taxonomy.getEdgeOffset(source), degree = taxonomy.getDegree(source);
+            for (int i = 0; i < degree; i++) {
+                final int edge = taxonomy.getEdge(offset + i);
+                sign = Graph.isHypernym(edge) ? +1 : -1;
+                forEach(Graph.target(edge), depth - 1, visitor);
+            }
+
+            return levels.size();
+        }
+
+        @Override
+        public int size() {
+            return levels.size();
+        }
+
+        @Override
+        public int getNeighbour(int i) {
+            return levels.keyAt(i);
+        }
+
+        @Override
+        public int getLevel(int i) {
+            return levels.valueAt(i);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The read-only hypernym/hyponym graph stored in the compressed sparse row format and memory-mapped from a file.
+ * The nodes are the dense integer identifiers of the synsets sorted in the lexicographical order of their BabelNet
+ * IDs. The edges are encoded as described in {@link Graph}.
+ * <p>
+ * The file consists of the header (magic number, version, number of nodes, number of edges, dictionary size),
+ * the edge offsets, the edges, the dictionary offsets, and the dictionary itself. Each section has to fit in 2 GB.
+ * Since the buffers are accessed using the absolute positions only, a single instance can be shared by all threads.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Taxonomy implements Graph {
+    private static final int MAGIC = 0x424e5458, VERSION = 1;
+
+    private final int nodes, edges;
+    private final IntBuffer edgeOffsets, edgeTargets, dictionaryOffsets;
+    private final ByteBuffer dictionary;
+
+    private Taxonomy(int nodes, int edges, IntBuffer edgeOffsets, IntBuffer edgeTargets, IntBuffer dictionaryOffsets, ByteBuffer dictionary) {
+        this.nodes = nodes;
+        this.edges = edges;
+        this.edgeOffsets = edgeOffsets;
+        this.edgeTargets = edgeTargets;
+        this.dictionaryOffsets = dictionaryOffsets;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Memory-map the taxonomy file.
+     *
+     * @param filename the file to read.
+     * @return the taxonomy.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static Taxonomy open(String filename) throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 24);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Not a taxonomy file: " + filename);
+            final int nodes = header.getInt(), edges = header.getInt();
+            final long dictionarySize = header.getLong();
+
+            long position = 24;
+            final IntBuffer edgeOffsets = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * (nodes + 1)).asIntBuffer();
+            position += 4L * (nodes + 1);
+            final IntBuffer edgeTargets = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * edges).asIntBuffer();
+            position += 4L * edges;
+            final IntBuffer dictionaryOffsets = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * (nodes + 1)).asIntBuffer();
+            position += 4L * (nodes + 1);
+            final ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, position, dictionarySize);
+
+            return new Taxonomy(nodes, edges, edgeOffsets, edgeTargets, dictionaryOffsets, dictionary);
+        }
+    }
+
+    /**
+     * Get the number of nodes.
+     *
+     * @return the number of nodes.
+     */
+    public int size() {
+        return nodes;
+    }
+
+    /**
+     * Get the number of edges.
+     *
+     * @return the number of edges.
+     */
+    public int getEdgeCount() {
+        return edges;
+    }
+
+    /**
+     * Find the node corresponding to the given synset ID.
+     *
+     * @param synsetID the synset ID.
+     * @return the node or -1 if the synset is not present.
+     */
+    @Override
+    public int lookup(String synsetID) {
+        int low = 0, high = nodes - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = getId(mid).compareTo(synsetID);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the synset ID of the given node.
+     *
+     * @param node the node.
+     * @return the synset ID.
+     */
+    @Override
+    public String getId(int node) {
+        final int offset = dictionaryOffsets.get(node), length = dictionaryOffsets.get(node + 1) - offset;
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = dictionary.get(offset + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the number of edges of the given node.
+     *
+     * @param node the node.
+     * @return the number of edges.
+     */
+    public int getDegree(int node) {
+        return edgeOffsets.get(node + 1) - edgeOffsets.get(node);
+    }
+
+    /**
+     * Get the index of the first edge of the given node.
+     *
+     * @param node the node.
+     * @return the edge index.
+     */
+    int getEdgeOffset(int node) {
+        return edgeOffsets.get(node);
+    }
+
+    /**
+     * Get the edge by its index, which allows reading the edges without copying them.
+     *
+     * @param index the edge index.
+     * @return the edge.
+     */
+    int getEdge(int index) {
+        return edgeTargets.get(index);
+    }
+
+    /**
+     * Copy the edges of the given node to the buffer if it is large enough. The edges are in the same order
+     * as returned by BabelNet during the snapshot.
+     *
+     * @param node   the node.
+     * @param buffer the buffer to fill.
+     * @return the number of edges, which might be larger than the buffer.
+     */
+    @Override
+    public int getEdges(int node, int[] buffer) {
+        final int offset = edgeOffsets.get(node), degree = edgeOffsets.get(node + 1) - offset;
+        if (degree <= buffer.length) {
+            for (int i = 0; i < degree; i++) buffer[i] = edgeTargets.get(offset + i);
+        }
+        return degree;
+    }
+
+    /**
+     * A builder accumulating the edges of the graph in memory and writing the taxonomy file.
+     */
+    public static class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private int[] sources = new int[1024], targets = new int[1024];
+        private int edges = 0;
+
+        private int intern(String synsetID) {
+            Integer id = ids.get(synsetID);
+            if (id == null) {
+                id = names.size();
+                ids.put(synsetID, id);
+                names.add(synsetID);
+            }
+            return id;
+        }
+
+        /**
+         * Add the node to the graph, which is useful for the synsets having no edges.
+         *
+         * @param synsetID the synset ID.
+         * @return this builder.
+         */
+        public Builder addNode(String synsetID) {
+            intern(synsetID);
+            return this;
+        }
+
+        /**
+         * Add the edge to the graph. The edges of every node are stored in the order of addition.
+         *
+         * @param source   the source synset ID.
+         * @param target   the target synset ID.
+         * @param hypernym whether the target is the hypernym of the source.
+         * @return this builder.
+         */
+        public Builder addEdge(String source, String target, boolean hypernym) {
+            if (edges == sources.length) {
+                sources = Arrays.copyOf(sources, edges * 2);
+                targets = Arrays.copyOf(targets, edges * 2);
+            }
+            sources[edges] = intern(source);
+            targets[edges] = Graph.edge(intern(target), hypernym);
+            edges++;
+            return this;
+        }
+
+        /**
+         * Write the taxonomy file.
+         *
+         * @param filename the file to write.
+         * @throws IOException when an I/O error has occurred.
+         */
+        public void write(String filename) throws IOException {
+            final int nodes = names.size();
+
+            final Integer[] order = new Integer[nodes];
+            for (int i = 0; i < nodes; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparing(names::get));
+            final int[] renumber = new int[nodes];
+            for (int i = 0; i < nodes; i++) renumber[order[i]] = i;
+
+            final int[] edgeOffsets = new int[nodes + 1];
+            for (int i = 0; i < edges; i++) edgeOffsets[renumber[sources[i]] + 1]++;
+            for (int i = 0; i < nodes; i++) edgeOffsets[i + 1] += edgeOffsets[i];
+
+            final int[] edgeTargets = new int[edges], cursor = Arrays.copyOf(edgeOffsets, nodes);
+            for (int i = 0; i < edges; i++) {
+                edgeTargets[cursor[renumber[sources[i]]]++] = Graph.edge(renumber[Graph.target(targets[i])], Graph.isHypernym(targets[i]));
+            }
+
+            final byte[][] dictionary = new byte[nodes][];
+            long dictionarySize = 0;
+            for (int i = 0; i < nodes; i++) {
+                dictionary[i] = names.get(order[i]).getBytes(StandardCharsets.UTF_8);
+                dictionarySize += dictionary[i].length;
+            }
+
+            try (final OutputStream stream = new FileOutputStream(filename);
+                 final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(nodes);
+                output.writeInt(edges);
+                output.writeLong(dictionarySize);
+                for (final int offset : edgeOffsets) output.writeInt(offset);
+                for (final int target : edgeTargets) output.writeInt(target);
+                int offset = 0;
+                for (final byte[] bytes : dictionary) {
+                    output.writeInt(offset);
+                    offset += bytes.length;
+                }
+                output.writeInt(offset);
+                for (final byte[] bytes : dictionary) output.write(bytes);
+            }
+        }
+    }
+}
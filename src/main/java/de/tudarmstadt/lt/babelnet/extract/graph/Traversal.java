@@ -0,0 +1,55 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.io.IOException;
+
+/**
+ * The engine extracting the ego networks of the graph nodes. An instance keeps the results of the last walk,
+ * so it is not thread-safe and is intended to be reused by a single thread.
+ *
+ * @author Dmitry Ustalov
+ */
+public interface Traversal {
+    /**
+     * Extract the ego network of the node. The initial node is not included into the results. Each distance
+     * provided with the plus sign if the neighbour is reachable through the hypernym, otherwise, the minus sign
+     * is written. The results are available through {@link #getNeighbour(int)} and {@link #getLevel(int)}
+     * until the next walk; their order depends on the traversal.
+     *
+     * @param source the initial node or -1 if the synset is not present in the graph.
+     * @return the number of neighbours.
+     * @throws IOException when an I/O error has occurred.
+     */
+    int walk(int source) throws IOException;
+
+    /**
+     * Get the number of neighbours found during the last walk.
+     *
+     * @return the number of neighbours.
+     */
+    int size();
+
+    /**
+     * Check whether the last walk has been stopped by its budget, so the ego network is incomplete.
+     *
+     * @return true if the ego network is truncated.
+     */
+    default boolean isTruncated() {
+        return false;
+    }
+
+    /**
+     * Get the neighbour found during the last walk.
+     *
+     * @param i the neighbour index.
+     * @return the neighbour node.
+     */
+    int getNeighbour(int i);
+
+    /**
+     * Get the signed distance to the neighbour found during the last walk.
+     *
+     * @param i the neighbour index.
+     * @return the signed distance.
+     */
+    int getLevel(int i);
+}
@@ -0,0 +1,131 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The breadth-first traversal engine extracting the ego networks. An instance keeps its buffers between
+ * the walks, so it is not thread-safe and is intended to be reused by a single thread. The visited nodes are
+ * marked with the walk number, so the visited array is never cleared except when the counter overflows.
+ * The visited nodes and their levels are appended to the arrays that serve as the queue, so a walk touches
+ * only the memory of its own ego network, and the neighbours are returned in the order of their discovery.
+ * The walk is stopped when it exceeds the given {@link Budget}; the limits are checked only before visiting
+ * a new node, so the ego network is marked as truncated only if some of its nodes have actually been skipped.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Walker implements Traversal {
+    private final Graph graph;
+    private final int depth;
+    private final Budget budget;
+    private int[] stamps = new int[1024];
+    private int epoch = 0;
+    private int[] visited = new int[64], visitedLevels = new int[64];
+    private int count;
+    private int[] edges = new int[64];
+    private boolean truncated;
+
+    /**
+     * Initialize the walker.
+     *
+     * @param graph the graph.
+     * @param depth the graph depth.
+     */
+    public Walker(Graph graph, int depth) {
+        this(graph, depth, Budget.UNLIMITED);
+    }
+
+    /**
+     * Initialize the walker limiting every walk.
+     *
+     * @param graph  the graph.
+     * @param depth  the graph depth.
+     * @param budget the limits of every walk.
+     */
+    public Walker(Graph graph, int depth, Budget budget) {
+        this.graph = graph;
+        this.depth = depth;
+        this.budget = budget;
+    }
+
+    @Override
+    public int walk(int source) throws IOException {
+        count = 0;
+        truncated = false;
+        if (source < 0) return 0;
+        final int maxVisited = budget.getMaxVisited(), maxFanOut = budget.getMaxFanOut();
+        final long deadline = (budget.getMaxNanos() == 0) ? 0 : System.nanoTime() + budget.getMaxNanos();
+
+        if (++epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+
+        visit(source, 0);
+
+        // The visited nodes are the queue: every node is appended once, so the nodes before the head are expanded.
+        walk:
+        for (int head = 0; head < count; head++) {
+            final int node = visited[head], step = visitedLevels[head];
+            if (Math.abs(step) >= depth) continue;
+
+            int degree = graph.getEdges(node, edges);
+            if (degree > edges.length) {
+                edges = new int[Integer.highestOneBit(degree) << 1];
+                degree = graph.getEdges(node, edges);
+            }
+
+            // Only the edges leading to the new nodes count towards the fan-out limit.
+            for (int i = 0, followed = 0; i < degree; i++) {
+                final int target = Graph.target(edges[i]);
+                if (target < stamps.length && stamps[target] == epoch) continue;
+                if (followed++ >= maxFanOut) {
+                    truncated = true;
+                    break;
+                }
+                if (count > maxVisited || (deadline != 0 && System.nanoTime() - deadline > 0)) {
+                    truncated = true;
+                    break walk;
+                }
+                final int level = (step == 0) ?
+                        (Graph.isHypernym(edges[i]) ? +1 : -1) :
+                        Integer.signum(step) * (Math.abs(step) + 1);
+                visit(target, level);
+            }
+        }
+
+        return size();
+    }
+
+    private void visit(int node, int level) {
+        if (node >= stamps.length) stamps = Arrays.copyOf(stamps, Math.max(node + 1, stamps.length * 2));
+        stamps[node] = epoch;
+        if (count == visited.length) {
+            visited = Arrays.copyOf(visited, count * 2);
+            visitedLevels = Arrays.copyOf(visitedLevels, count * 2);
+        }
+        visited[count] = node;
+        visitedLevels[count] = level;
+        count++;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(count - 1, 0);
+    }
+
+    @Override
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public int getNeighbour(int i) {
+        return visited[i + 1];
+    }
+
+    @Override
+    public int getLevel(int i) {
+        return visitedLevels[i + 1];
+    }
+}
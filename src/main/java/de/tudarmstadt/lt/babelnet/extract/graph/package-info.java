@@ -0,0 +1,4 @@
+/**
+ * Compact representations of the BabelNet taxonomy used for graph walks.
+ */
+package de.tudarmstadt.lt.babelnet.extract.graph;
@@ -0,0 +1,326 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import de.tudarmstadt.lt.babelnet.extract.data.Cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The parallel reader of the Chinese Whispers clusters files, which are tab-separated files containing the cluster
+ * ID, its size, and the senses separated by commas. The file is memory-mapped in the chunks aligned to the line
+ * boundaries, and the chunks are parsed in parallel without regular expressions. The clusters are returned
+ * in the input order, and the number of chunks read ahead is bounded, so the memory usage does not depend on the file
+ * size. The chunks are parsed by the dedicated parser threads, so the reader does not wait for the workers
+ * of the common pool, which may in turn be waiting for the clusters. The streams that cannot be memory-mapped,
+ * e.g., the decompressed ones, are read in the chunks of the same size. The iterator throws
+ * {@link UncheckedIOException} if the file cannot be read or contains a malformed record.
+ * <p>
+ * The records follow the {@code CSVFormat.MYSQL} conventions: the fields containing the backslash escapes
+ * are unescaped, and an escaped line break does not end the record.
+ *
+ * @author Dmitry Ustalov
+ */
+public class ClusterReader implements Iterator<Cluster>, Closeable {
+    private static final int CHUNK_SIZE = 1 << 24;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService PARSERS = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "ClusterParser-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final FileChannel channel;
+    private final InputStream stream;
+    private final long size;
+    private final Deque<Future<List<Cluster>>> chunks = new ArrayDeque<>();
+    private long position = 0;
+    private byte[] remainder = new byte[0];
+    private boolean exhausted = false;
+    private Iterator<Cluster> current = Collections.emptyIterator();
+
+    private ClusterReader(FileChannel channel, InputStream stream) throws IOException {
+        this.channel = channel;
+        this.stream = stream;
+        this.size = (channel == null) ? -1 : channel.size();
+    }
+
+    /**
+     * Open the clusters file.
+     *
+     * @param filename the file to read.
+     * @return the reader.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static ClusterReader open(String filename) throws IOException {
+        final FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            return new ClusterReader(channel, null);
+        } catch (final IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read the clusters from the stream, which is closed when the reader is closed.
+     *
+     * @param stream the stream to read.
+     * @return the reader.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static ClusterReader open(InputStream stream) throws IOException {
+        return new ClusterReader(null, stream);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            fill();
+            final Future<List<Cluster>> chunk = chunks.poll();
+            if (chunk == null) return false;
+            current = await(chunk).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Cluster next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return current.next();
+    }
+
+    private void fill() {
+        try {
+            while (chunks.size() <= THREADS && !exhausted) {
+                final ByteBuffer chunk = (channel == null) ? read() : map();
+                chunks.add(PARSERS.submit(() -> parse(chunk)));
+            }
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static List<Cluster> await(Future<List<Cluster>> chunk) {
+        try {
+            return chunk.get();
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error) throw (Error) ex.getCause();
+            throw new IllegalStateException(ex.getCause());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Map the next chunk ending with the last complete line within the chunk size. The chunk is enlarged
+     * if it does not contain the end of the line.
+     *
+     * @return the chunk.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private ByteBuffer map() throws IOException {
+        long length = Math.min(CHUNK_SIZE, size - position);
+        while (true) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size) {
+                position = size;
+                exhausted = true;
+                return buffer;
+            }
+            for (int i = buffer.limit() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n' && !isEscaped(buffer, i)) {
+                    buffer.limit(i + 1);
+                    position += i + 1;
+                    return buffer;
+                }
+            }
+            if (length == Integer.MAX_VALUE) throw new IOException("The record at " + position + " is too long");
+            length = Math.min(Math.min(length * 2, Integer.MAX_VALUE), size - position);
+        }
+    }
+
+    /**
+     * Read the next chunk from the stream ending with the last complete line. The rest of the data is kept
+     * for the next chunk. The chunk is enlarged if it does not contain the end of the line.
+     *
+     * @return the chunk.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private ByteBuffer read() throws IOException {
+        byte[] chunk = Arrays.copyOf(remainder, Math.max(CHUNK_SIZE, remainder.length * 2));
+        int length = remainder.length;
+        while (true) {
+            final int n = stream.read(chunk, length, chunk.length - length);
+            if (n < 0) {
+                remainder = new byte[0];
+                exhausted = true;
+                return ByteBuffer.wrap(chunk, 0, length);
+            }
+            length += n;
+            if (length < chunk.length) continue;
+            final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            for (int i = length - 1; i >= 0; i--) {
+                if (chunk[i] == '\n' && !isEscaped(buffer, i)) {
+                    remainder = Arrays.copyOfRange(chunk, i + 1, length);
+                    buffer.limit(i + 1);
+                    return buffer;
+                }
+            }
+            if (chunk.length == Integer.MAX_VALUE - 8) throw new IOException("The record is too long");
+            chunk = Arrays.copyOf(chunk, (int) Math.min(2L * chunk.length, Integer.MAX_VALUE - 8));
+        }
+    }
+
+    private static boolean isEscaped(ByteBuffer buffer, int index) {
+        int escapes = 0;
+        for (int i = index - 1; i >= 0 && buffer.get(i) == '\\'; i--) escapes++;
+        return (escapes & 1) != 0;
+    }
+
+    /**
+     * Parse the records of the chunk.
+     *
+     * @param buffer the chunk containing the complete lines.
+     * @return the clusters.
+     */
+    private static List<Cluster> parse(ByteBuffer buffer) {
+        final List<Cluster> clusters = new ArrayList<>();
+        final int[] tabs = new int[3];
+        byte[] bytes = new byte[256];
+
+        int start = 0;
+        while (start < buffer.limit()) {
+            int end = start, fields = 0;
+            boolean escaped = false;
+            for (; end < buffer.limit(); end++) {
+                final byte b = buffer.get(end);
+                if (b == '\\') {
+                    escaped = true;
+                    end++;
+                } else if (b == '\n') {
+                    break;
+                } else if (b == '\t' && fields < tabs.length) {
+                    tabs[fields++] = end;
+                }
+            }
+            final int next = end + 1;
+            if (end > buffer.limit()) end = buffer.limit();
+            if (end > start && buffer.get(end - 1) == '\r') end--;
+
+            if (end > start) {
+                if (fields < 2) {
+                    throw new UncheckedIOException(new IOException("Malformed cluster record: " + decode(buffer, start, end)));
+                }
+                final int length = ((fields > 2) ? tabs[2] : end) - tabs[1] - 1;
+                if (length > bytes.length) bytes = new byte[Integer.highestOneBit(length) << 1];
+                for (int i = 0; i < length; i++) bytes[i] = buffer.get(tabs[1] + 1 + i);
+                String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                String id = decode(buffer, start, tabs[0]);
+                if (escaped) {
+                    text = unescape(text);
+                    id = unescape(id);
+                }
+                clusters.add(new Cluster.Builder().setId(Integer.parseInt(id)).addAllSenses(split(text)).build());
+            }
+            start = next;
+        }
+        return clusters;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        final byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Split the senses field, which ends with the separator, in the same way as {@code String.split(", ")}.
+     *
+     * @param text the senses field.
+     * @return the senses.
+     */
+    static List<String> split(String text) {
+        final int length = text.length() - 2;
+        final List<String> senses = new ArrayList<>();
+        int start = 0;
+        for (int end = text.indexOf(", "); end >= 0 && end + 2 <= length; end = text.indexOf(", ", start)) {
+            senses.add(text.substring(start, end));
+            start = end + 2;
+        }
+        if (start == 0) return Collections.singletonList(text.substring(0, length));
+        senses.add(text.substring(start, length));
+        int size = senses.size();
+        while (size > 0 && senses.get(size - 1).isEmpty()) size--;
+        return senses.subList(0, size);
+    }
+
+    /**
+     * Replace the backslash escapes with the corresponding characters.
+     *
+     * @param text the escaped text.
+     * @return the unescaped text.
+     */
+    static String unescape(String text) {
+        final StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                sb.append(c);
+                continue;
+            }
+            final char escaped = text.charAt(++i);
+            switch (escaped) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                default:
+                    sb.append(escaped);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stop reading ahead and close the file or the stream.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        for (final Future<List<Cluster>> chunk : chunks) chunk.cancel(false);
+        chunks.clear();
+        current = Collections.emptyIterator();
+        exhausted = true;
+        if (channel != null) channel.close();
+        if (stream != null) stream.close();
+    }
+}
@@ -0,0 +1,410 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static de.tudarmstadt.lt.babelnet.extract.Resource.readRecords;
+
+/**
+ * The read-only ego networks stored in the compact binary format and memory-mapped from a file. The synset IDs
+ * are mapped to the dense integer identifiers, the nodes, sorted in the lexicographical order of the IDs.
+ * Every ego network is stored as its source node, the number of neighbours combined with the truncation flag,
+ * and the neighbours sorted by their nodes, each neighbour written as the variable-length difference from
+ * the previous node followed by the zigzag-encoded signed level. The ego
+ * networks are stored in the input order, and the index sorted by the source node allows looking up the ego
+ * network of a synset without decoding the others.
+ * <p>
+ * The file consists of the header (magic number, version, number of nodes, number of ego networks, dictionary size,
+ * records size), the dictionary offsets, the dictionary, the index sources, the index offsets, and the records.
+ * Each section has to fit in 2 GB. Since the buffers are accessed using the absolute positions only, a single
+ * instance can be shared by all threads.
+ *
+ * @author Dmitry Ustalov
+ */
+public class EgoNetworks implements Iterable<EgoNetworks.EgoNetwork> {
+    /**
+     * The third field of the text records of the truncated ego networks.
+     */
+    public static final String TRUNCATED = "truncated";
+
+    private static final int MAGIC = 0x45474F4E, VERSION = 2, HEADER_SIZE = 32;
+
+    private final int version, nodes, networks;
+    private final IntBuffer dictionaryOffsets, indexSources, indexOffsets;
+    private final ByteBuffer dictionary, records;
+
+    private EgoNetworks(int version, int nodes, int networks, IntBuffer dictionaryOffsets, ByteBuffer dictionary, IntBuffer indexSources, IntBuffer indexOffsets, ByteBuffer records) {
+        this.version = version;
+        this.nodes = nodes;
+        this.networks = networks;
+        this.dictionaryOffsets = dictionaryOffsets;
+        this.dictionary = dictionary;
+        this.indexSources = indexSources;
+        this.indexOffsets = indexOffsets;
+        this.records = records;
+    }
+
+    /**
+     * Check whether the ego networks file is binary, i.e., its name ends with {@code .bin}.
+     *
+     * @param filename the file name.
+     * @return true if the file is binary.
+     */
+    public static boolean isBinary(String filename) {
+        return filename.endsWith(".bin");
+    }
+
+    /**
+     * Memory-map the ego networks file.
+     *
+     * @param filename the file to read.
+     * @return the ego networks.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static EgoNetworks open(String filename) throws IOException {
+        try (final FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            final int magic = header.getInt(), version = header.getInt();
+            if (magic != MAGIC || version < 1 || version > VERSION)
+                throw new IOException("Not an ego networks file: " + filename);
+            final int nodes = header.getInt(), networks = header.getInt();
+            final long dictionarySize = header.getLong(), recordsSize = header.getLong();
+
+            long position = HEADER_SIZE;
+            final IntBuffer dictionaryOffsets = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * (nodes + 1)).asIntBuffer();
+            position += 4L * (nodes + 1);
+            final ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, position, dictionarySize);
+            position += dictionarySize;
+            final IntBuffer indexSources = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * networks).asIntBuffer();
+            position += 4L * networks;
+            final IntBuffer indexOffsets = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * networks).asIntBuffer();
+            position += 4L * networks;
+            final ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, position, recordsSize);
+
+            return new EgoNetworks(version, nodes, networks, dictionaryOffsets, dictionary, indexSources, indexOffsets, records);
+        }
+    }
+
+    /**
+     * Get the number of ego networks.
+     *
+     * @return the number of ego networks.
+     */
+    public int size() {
+        return networks;
+    }
+
+    /**
+     * Get the number of distinct synsets, i.e., the sources and their neighbours.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Find the node corresponding to the given synset ID.
+     *
+     * @param synsetID the synset ID.
+     * @return the node or -1 if the synset is not present.
+     */
+    public int lookup(String synsetID) {
+        int low = 0, high = nodes - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = getId(mid).compareTo(synsetID);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the synset ID of the given node.
+     *
+     * @param node the node.
+     * @return the synset ID.
+     */
+    public String getId(int node) {
+        final int offset = dictionaryOffsets.get(node), length = dictionaryOffsets.get(node + 1) - offset;
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = dictionary.get(offset + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the ego network of the given synset. If the synset occurs in the input several times, the first
+     * of its ego networks is returned.
+     *
+     * @param synsetID the synset ID.
+     * @return the ego network or null if the synset is not a source.
+     */
+    public EgoNetwork get(String synsetID) {
+        final int node = lookup(synsetID);
+        if (node < 0) return null;
+        int low = 0, high = networks;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (indexSources.get(mid) < node) low = mid + 1;
+            else high = mid;
+        }
+        return (low < networks && indexSources.get(low) == node) ? decode(indexOffsets.get(low)) : null;
+    }
+
+    /**
+     * Iterate the ego networks in the input order. Every ego network is decoded when it is returned.
+     *
+     * @return the iterator.
+     */
+    @Override
+    public Iterator<EgoNetwork> iterator() {
+        return new Iterator<EgoNetwork>() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < records.limit();
+            }
+
+            @Override
+            public EgoNetwork next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                final EgoNetwork network = decode(position);
+                position = network.end;
+                return network;
+            }
+        };
+    }
+
+    private EgoNetwork decode(int offset) {
+        final int[] position = {offset};
+        final int source = readVarint(records, position), count = readVarint(records, position);
+        // The first version of the format had no truncation flag.
+        final int size = (version > 1) ? count >>> 1 : count;
+        final boolean truncated = version > 1 && (count & 1) != 0;
+        final int[] neighbours = new int[size], levels = new int[size];
+        for (int i = 0, node = 0; i < size; i++) {
+            node += readVarint(records, position);
+            final int level = readVarint(records, position);
+            neighbours[i] = node;
+            levels[i] = (level >>> 1) ^ -(level & 1);
+        }
+        return new EgoNetwork(source, neighbours, levels, truncated, position[0]);
+    }
+
+    private static int readVarint(ByteBuffer buffer, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            final byte b = buffer.get(position[0]++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    private static int writeVarint(OutputStream output, int value) throws IOException {
+        int length = 1;
+        for (; (value & ~0x7F) != 0; length++) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+        return length;
+    }
+
+    /**
+     * Encode the ego networks written by the neighbours action in the text format. The text file is read twice:
+     * the first pass collects the synset IDs, and the second pass encodes the records. Only the dictionary
+     * and the index are kept in memory.
+     *
+     * @param neighboursFilename the text file to read.
+     * @param filename           the binary file to write.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static void write(String neighboursFilename, String filename) throws IOException {
+        final Set<String> ids = new HashSet<>();
+        final int networks = readRecords(neighboursFilename, csv -> {
+            int count = 0;
+            for (final CSVRecord record : csv) {
+                ids.add(record.get(0));
+                for (final String neighbour : record.get(1).split(",")) ids.add(neighbour.substring(0, neighbour.lastIndexOf(':')));
+                count++;
+            }
+            return count;
+        });
+
+        final String[] names = ids.toArray(new String[0]);
+        ids.clear();
+        Arrays.sort(names);
+        final Map<String, Integer> dictionary = new HashMap<>(names.length * 2);
+        final int[] dictionaryOffsets = new int[names.length + 1];
+        long dictionarySize = 0;
+        for (int i = 0; i < names.length; i++) {
+            dictionary.put(names[i], i);
+            dictionarySize += names[i].getBytes(StandardCharsets.UTF_8).length;
+            if (dictionarySize > Integer.MAX_VALUE) throw new IOException("The dictionary is too large");
+            dictionaryOffsets[i + 1] = (int) dictionarySize;
+        }
+
+        final long indexPosition = HEADER_SIZE + 4L * (names.length + 1) + dictionarySize;
+        final long recordsPosition = indexPosition + 8L * networks;
+        final long[] index = new long[networks];
+
+        try (final FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            for (final int offset : dictionaryOffsets) output.writeInt(offset);
+            for (final String name : names) output.write(name.getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            channel.position(recordsPosition);
+            final long recordsSize = readRecords(neighboursFilename, csv -> {
+                try {
+                    long position = 0;
+                    int count = 0;
+                    long[] neighbours = new long[64];
+                    for (final CSVRecord record : csv) {
+                        if (position > Integer.MAX_VALUE) throw new IOException("The records are too large");
+                        final int source = dictionary.get(record.get(0));
+                        index[count] = (long) source << 32 | position;
+                        count++;
+
+                        final String[] pairs = record.get(1).split(",");
+                        if (pairs.length > neighbours.length) neighbours = new long[Integer.highestOneBit(pairs.length) << 1];
+                        for (int i = 0; i < pairs.length; i++) {
+                            final int separator = pairs[i].lastIndexOf(':');
+                            final int level = Integer.parseInt(pairs[i].substring(separator + 1));
+                            neighbours[i] = (long) dictionary.get(pairs[i].substring(0, separator)) << 32 | ((level << 1) ^ (level >> 31));
+                        }
+                        Arrays.sort(neighbours, 0, pairs.length);
+
+                        final boolean truncated = record.size() > 2 && record.get(2).equals(TRUNCATED);
+                        position += writeVarint(output, source) + writeVarint(output, pairs.length << 1 | (truncated ? 1 : 0));
+                        for (int i = 0, node = 0; i < pairs.length; i++) {
+                            final int neighbour = (int) (neighbours[i] >>> 32);
+                            position += writeVarint(output, neighbour - node) + writeVarint(output, (int) neighbours[i]);
+                            node = neighbour;
+                        }
+                    }
+                    output.flush();
+                    return position;
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            if (recordsSize > Integer.MAX_VALUE) throw new IOException("The records are too large");
+
+            // The index is sorted by the source node, and the ego networks of the same source keep the input order.
+            Arrays.sort(index);
+            channel.position(indexPosition);
+            for (final long entry : index) output.writeInt((int) (entry >>> 32));
+            for (final long entry : index) output.writeInt((int) entry);
+            output.flush();
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(names.length).putInt(networks).putLong(dictionarySize).putLong(recordsSize);
+            header.flip();
+            while (header.hasRemaining()) channel.write(header, header.position());
+        } catch (final UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * The ego network of a synset decoded from the file. The neighbours are sorted by their nodes, i.e.,
+     * in the lexicographical order of their synset IDs.
+     */
+    public final class EgoNetwork {
+        private final int source;
+        private final int[] neighbours, levels;
+        private final boolean truncated;
+        private final int end;
+
+        private EgoNetwork(int source, int[] neighbours, int[] levels, boolean truncated, int end) {
+            this.source = source;
+            this.neighbours = neighbours;
+            this.levels = levels;
+            this.truncated = truncated;
+            this.end = end;
+        }
+
+        /**
+         * Get the source node.
+         *
+         * @return the node.
+         */
+        public int getSource() {
+            return source;
+        }
+
+        /**
+         * Get the source synset ID.
+         *
+         * @return the synset ID.
+         */
+        public String getSynsetID() {
+            return getId(source);
+        }
+
+        /**
+         * Get the number of neighbours.
+         *
+         * @return the number of neighbours.
+         */
+        public int size() {
+            return neighbours.length;
+        }
+
+        /**
+         * Check whether the walk has been stopped by its budget, so the ego network is incomplete.
+         *
+         * @return true if the ego network is truncated.
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * Get the node of the neighbour.
+         *
+         * @param i the neighbour index.
+         * @return the node.
+         */
+        public int getNeighbour(int i) {
+            return neighbours[i];
+        }
+
+        /**
+         * Get the synset ID of the neighbour.
+         *
+         * @param i the neighbour index.
+         * @return the synset ID.
+         */
+        public String getNeighbourId(int i) {
+            return getId(neighbours[i]);
+        }
+
+        /**
+         * Get the level of the neighbour, which is positive if it is reachable through the hypernym,
+         * otherwise, negative.
+         *
+         * @param i the neighbour index.
+         * @return the level.
+         */
+        public int getLevel(int i) {
+            return levels[i];
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The external merge sort of the text lines, e.g., the output records, under the given memory budget. The lines are
+ * collected in memory until the budget is exhausted, then the sorted run is spilled to a temporary file. Finally,
+ * the runs and the remaining lines are merged using the priority queue, so the number of lines is limited only
+ * by the disk space. The temporary files are removed when the sorter is closed.
+ * <p>
+ * The lines can be added by several threads at once. The full buffer is swapped with an empty one under the lock,
+ * and the run is sorted and written outside it, so the other threads keep adding lines meanwhile. The runs keep
+ * the order of their buffers, so the equal lines are still returned in the order of their addition.
+ *
+ * @author Dmitry Ustalov
+ */
+public class ExternalSorter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Comparator<String> comparator;
+    private final long budget;
+    private List<String> lines = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Closeable> readers = new ArrayList<>();
+    private long used = 0;
+
+    /**
+     * Initialize the sorter.
+     *
+     * @param comparator the line order.
+     * @param budget     the approximate number of bytes of the lines kept in memory.
+     */
+    public ExternalSorter(Comparator<String> comparator, long budget) {
+        this.comparator = comparator;
+        this.budget = budget;
+    }
+
+    /**
+     * Estimate the heap size of the line kept in memory.
+     *
+     * @param line the line.
+     * @return the number of bytes.
+     */
+    private static long estimate(String line) {
+        return 64 + 2L * line.length();
+    }
+
+    /**
+     * Add the line, spilling the sorted run if the memory budget is exhausted.
+     *
+     * @param line the line not containing the line breaks.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void add(String line) throws IOException {
+        addAll(Collections.singletonList(line));
+    }
+
+    /**
+     * Add the lines, spilling the sorted run if the memory budget is exhausted.
+     *
+     * @param added the lines not containing the line breaks.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void addAll(Collection<String> added) throws IOException {
+        final List<String> full;
+        final Path run;
+        synchronized (this) {
+            for (final String line : added) {
+                lines.add(line);
+                used += estimate(line);
+            }
+            if (used < budget || lines.isEmpty()) return;
+            full = lines;
+            lines = new ArrayList<>();
+            used = 0;
+            run = Files.createTempFile("babelnet-extract", ".run");
+            runs.add(run);
+        }
+        full.sort(comparator);
+        try (final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(run), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            for (final String line : full) writer.append(line).append('\n');
+        }
+    }
+
+    /**
+     * Get the number of runs spilled to disk so far.
+     *
+     * @return the number of runs.
+     */
+    public synchronized int getRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Merge all the added lines in the sorted order. The equal lines are returned in the order of their addition.
+     * No lines can be added after calling this method, and all the threads adding them have to be finished.
+     * The iterator throws {@link UncheckedIOException} if a run cannot be read.
+     *
+     * @param distinct whether to skip the lines equal to the previous one.
+     * @return the iterator over the sorted lines.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public synchronized Iterator<String> sorted(boolean distinct) throws IOException {
+        lines.sort(comparator);
+        final List<Iterator<String>> sources = new ArrayList<>();
+        for (final Path run : runs) {
+            final BufferedReader reader = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+            readers.add(reader);
+            sources.add(lines(reader));
+        }
+        sources.add(lines.iterator());
+        return merge(sources, comparator, distinct);
+    }
+
+    /**
+     * Read the lines lazily. The iterator throws {@link UncheckedIOException} if the reader fails.
+     *
+     * @param reader the reader.
+     * @return the iterator over the lines.
+     */
+    public static Iterator<String> lines(BufferedReader reader) {
+        return new Iterator<String>() {
+            private String next = read();
+
+            private String read() {
+                try {
+                    return reader.readLine();
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) throw new NoSuchElementException();
+                final String line = next;
+                next = read();
+                return line;
+            }
+        };
+    }
+
+    /**
+     * Merge the sorted sources lazily. The equal lines of different sources are returned in the order
+     * of the sources.
+     *
+     * @param sources    the iterators over the lines sorted according to the comparator.
+     * @param comparator the line order.
+     * @param distinct   whether to skip the lines equal to the previous one.
+     * @return the iterator over the sorted lines.
+     */
+    public static Iterator<String> merge(List<Iterator<String>> sources, Comparator<String> comparator, boolean distinct) {
+        final PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (h1, h2) -> {
+                    final int order = comparator.compare(h1.line, h2.line);
+                    return (order != 0) ? order : Integer.compare(h1.index, h2.index);
+                });
+        for (int i = 0; i < sources.size(); i++) {
+            final Iterator<String> source = sources.get(i);
+            if (source.hasNext()) heads.add(new Head(source.next(), source, i));
+        }
+
+        return new Iterator<String>() {
+            private String last = null;
+            private String next = advance();
+
+            private String advance() {
+                while (!heads.isEmpty()) {
+                    final Head head = heads.poll();
+                    final String line = head.line;
+                    if (head.source.hasNext()) {
+                        head.line = head.source.next();
+                        heads.add(head);
+                    }
+                    if (distinct && line.equals(last)) continue;
+                    last = line;
+                    return line;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (next == null) throw new NoSuchElementException();
+                final String line = next;
+                next = advance();
+                return line;
+            }
+        };
+    }
+
+    /**
+     * Close the open runs and remove the temporary files.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (final Closeable reader : readers) {
+            try {
+                reader.close();
+            } catch (final IOException ex) {
+                if (failure == null) failure = ex;
+            }
+        }
+        for (final Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (final IOException ex) {
+                if (failure == null) failure = ex;
+            }
+        }
+        readers.clear();
+        runs.clear();
+        lines.clear();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * The current line of a source.
+     */
+    private static final class Head {
+        private String line;
+        private final Iterator<String> source;
+        private final int index;
+
+        private Head(String line, Iterator<String> source, int index) {
+            this.line = line;
+            this.source = source;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The output stream compressing the data in independent blocks in parallel. Every block is compressed
+ * as a separate gzip member by the shared pool of compressor threads, and the members are written to the underlying
+ * stream in order by the dedicated writer thread, so the concatenation is a standard multi-member gzip file
+ * readable by {@link java.util.zip.GZIPInputStream} and the {@code gzip} tool.
+ * <p>
+ * The number of blocks being compressed or written is bounded, so the writing thread waits when the compressors
+ * or the disk cannot keep up. Flushing the stream ends the current member and waits until all the members are
+ * written, so the underlying file can be truncated to its length after the flush without corrupting it.
+ * The compressor threads are not used for anything else, so they cannot be blocked by the threads waiting
+ * for the output.
+ *
+ * @author Dmitry Ustalov
+ */
+public class GzipBlockOutputStream extends OutputStream {
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService COMPRESSORS = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "Compressor-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Future<byte[]> END = CompletableFuture.completedFuture(new byte[0]);
+
+    private final OutputStream out;
+    private final BlockingQueue<Future<byte[]>> members = new ArrayBlockingQueue<>(2 * THREADS);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Object lock = new Object();
+    private final Thread writer;
+    private long submitted = 0, written = 0;
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int size = 0;
+    private boolean closed = false;
+
+    /**
+     * Initialize the stream and start its writer thread.
+     *
+     * @param out the underlying stream, which is closed when this stream is closed.
+     */
+    public GzipBlockOutputStream(OutputStream out) {
+        this.out = out;
+        this.writer = new Thread(this::drain, "GzipWriter");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (size == block.length) submit();
+        block[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (size == block.length) submit();
+            final int n = Math.min(length, block.length - size);
+            System.arraycopy(bytes, offset, block, size, n);
+            size += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void submit() throws IOException {
+        submit(false);
+    }
+
+    private void submit(boolean empty) throws IOException {
+        check();
+        if (size == 0 && !empty) return;
+        final byte[] data = block;
+        final int length = size;
+        block = new byte[BLOCK_SIZE];
+        size = 0;
+        put(COMPRESSORS.submit(() -> compress(data, length)));
+        synchronized (lock) {
+            submitted++;
+        }
+    }
+
+    private void put(Future<byte[]> member) throws IOException {
+        try {
+            while (!members.offer(member, 100, TimeUnit.MILLISECONDS)) check();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static byte[] compress(byte[] data, int length) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4 + 64);
+        try (final GZIPOutputStream gzip = new GZIPOutputStream(bytes, 1 << 16)) {
+            gzip.write(data, 0, length);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void drain() {
+        try {
+            for (Future<byte[]> member = members.take(); member != END; member = members.take()) {
+                out.write(member.get());
+                synchronized (lock) {
+                    written++;
+                    lock.notifyAll();
+                }
+            }
+        } catch (final ExecutionException ex) {
+            fail(ex.getCause());
+        } catch (final IOException | InterruptedException | RuntimeException | Error ex) {
+            fail(ex);
+        }
+    }
+
+    private void fail(Throwable ex) {
+        failure.compareAndSet(null, ex);
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private void check() throws IOException {
+        final Throwable ex = failure.get();
+        if (ex != null) throw new IOException("The compressed output has failed", ex);
+    }
+
+    /**
+     * End the current member, wait until all the members are written, and flush the underlying stream.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public void flush() throws IOException {
+        submit();
+        try {
+            synchronized (lock) {
+                while (written < submitted && failure.get() == null) lock.wait(100);
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        check();
+        out.flush();
+    }
+
+    /**
+     * Write the remaining data, stop the writer thread, and close the underlying stream. The empty stream
+     * is written as a single empty member.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            try {
+                // The empty member is written if there is no data, so the output is still a valid gzip file.
+                submit(submitted == 0);
+                put(END);
+                writer.join();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } finally {
+                if (writer.isAlive()) writer.interrupt();
+            }
+            check();
+        } finally {
+            out.close();
+        }
+    }
+}
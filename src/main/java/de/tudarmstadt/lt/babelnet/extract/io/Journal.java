@@ -0,0 +1,157 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The append-only progress journal of a resumable action. The journal is a text file containing the completed
+ * item keys, one per line. Every batch of keys is followed by the commit line {@code #length} containing the length
+ * of the output file after writing these items. On opening, the incomplete tail of the journal is discarded, so
+ * the output file can be truncated to the last committed length and the uncommitted items processed again.
+ * Only the commit line terminated by the newline is accepted, since the torn write of {@code #1234} might leave
+ * a shorter number, and the journal is read up to the first malformed commit line.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Journal implements Closeable {
+    private final long[] completed;
+    private final long outputLength;
+    private final Writer writer;
+
+    private Journal(long[] completed, long outputLength, Writer writer) {
+        this.completed = completed;
+        this.outputLength = outputLength;
+        this.writer = writer;
+    }
+
+    /**
+     * Open the journal, reading the existing entries if the journal file exists.
+     *
+     * @param filename the journal file.
+     * @return the journal.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static Journal open(String filename) throws IOException {
+        final Path path = Paths.get(filename);
+        long[] codes = new long[1024];
+        int size = 0, committed = 0;
+        long outputLength = 0, journalLength = 0, position = 0;
+
+        if (Files.exists(path)) {
+            try (final InputStream stream = Files.newInputStream(path)) {
+                final byte[] buffer = new byte[1 << 16];
+                byte[] line = new byte[64];
+                int length = 0;
+                read:
+                for (int read = stream.read(buffer); read >= 0; read = stream.read(buffer)) {
+                    for (int i = 0; i < read; i++) {
+                        position++;
+                        if (buffer[i] != '\n') {
+                            if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                            line[length++] = buffer[i];
+                            continue;
+                        }
+                        if (length > 0 && line[0] == '#') {
+                            final long committedLength = parseCommit(line, length);
+                            if (committedLength < 0) break read;
+                            outputLength = committedLength;
+                            journalLength = position;
+                            committed = size;
+                        } else {
+                            if (size == codes.length) codes = Arrays.copyOf(codes, size * 2);
+                            codes[size++] = SynsetIDs.encode(new String(line, 0, length, StandardCharsets.UTF_8));
+                        }
+                        length = 0;
+                    }
+                }
+            }
+        }
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(journalLength);
+        }
+
+        final long[] completed = Arrays.copyOf(codes, committed);
+        Arrays.sort(completed);
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(filename, true), StandardCharsets.UTF_8), 1 << 16);
+        return new Journal(completed, outputLength, writer);
+    }
+
+    /**
+     * Parse the output length of the commit line, which consists of the hash sign followed by the decimal digits.
+     *
+     * @param line   the bytes of the line without the newline.
+     * @param length the number of bytes.
+     * @return the output length, or -1 if the line is malformed.
+     */
+    private static long parseCommit(byte[] line, int length) {
+        if (length < 2 || length > 19) return -1;
+        long value = 0;
+        for (int i = 1; i < length; i++) {
+            if (line[i] < '0' || line[i] > '9') return -1;
+            value = value * 10 + (line[i] - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Get the number of the committed items.
+     *
+     * @return the number of items.
+     */
+    public int size() {
+        return completed.length;
+    }
+
+    /**
+     * Get the length of the output file after the last commit.
+     *
+     * @return the output length.
+     */
+    public long getOutputLength() {
+        return outputLength;
+    }
+
+    /**
+     * Check whether the item has been committed before opening the journal.
+     *
+     * @param key the item key.
+     * @return true if the item has been committed.
+     */
+    public boolean isCompleted(String key) {
+        return Arrays.binarySearch(completed, SynsetIDs.encode(key)) >= 0;
+    }
+
+    /**
+     * Append the completed items and the commit line to the journal and flush it.
+     *
+     * @param keys         the completed item keys.
+     * @param outputLength the length of the output file containing the records of these items.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void commit(Collection<String> keys, long outputLength) throws IOException {
+        for (final String key : keys) writer.append(key).append('\n');
+        writer.append('#').append(Long.toString(outputLength)).append('\n');
+        writer.flush();
+    }
+
+    /**
+     * Close the journal.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,317 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+
+/**
+ * The writer stage that takes the records from many threads without a global lock. Every thread formats
+ * its records into a thread-local buffer, and a dedicated I/O thread writes them to the output in large batches.
+ * <p>
+ * In the unordered mode, the records are written in the order of completion. In the ordered mode, every item
+ * has the sequence number, and the items are written in the order of these numbers. The items ahead of the oldest
+ * unwritten one by more than the reorder window wait for it, which bounds the memory usage. The sequence numbers
+ * must start from zero and have no gaps, so every item has to be passed to the writer even if it has no records,
+ * and the writer has to be aborted if an item fails before reaching it.
+ * <p>
+ * If the checkpoint is set, the I/O thread periodically flushes the output and passes the keys of the items
+ * written so far to the checkpoint, e.g., to the progress journal. The number of batches waiting for
+ * the I/O thread is reported to the metrics as {@code writer}.
+ *
+ * @author Dmitry Ustalov
+ */
+public class RecordWriter implements Closeable {
+    private static final int BATCH_SIZE = 1 << 16, CHECKPOINT_SIZE = 4096;
+    private static final long CHECKPOINT_NANOS = 1_000_000_000L;
+    private static final Batch END = new Batch("", Collections.emptyList());
+
+    private final Writer writer;
+    private final int window;
+    private final Checkpoint checkpoint;
+    private final List<String> pending = new ArrayList<>();
+    private long checkpointTime = System.nanoTime();
+    private final ThreadLocal<Buffer> buffers;
+    private final Queue<Buffer> allBuffers = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(64);
+    private final AtomicReferenceArray<Batch> slots;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Thread thread;
+    private final IntSupplier depth = this::depth;
+    private volatile long next = 0;
+    private volatile boolean closing = false;
+
+    /**
+     * Initialize the writer stage and start its I/O thread.
+     *
+     * @param writer the writer to write the records to.
+     * @param window the size of the reorder window, or zero to write the records in the order of completion.
+     */
+    public RecordWriter(Writer writer, int window) {
+        this(writer, window, null);
+    }
+
+    /**
+     * Initialize the writer stage with the checkpoint and start its I/O thread.
+     *
+     * @param writer     the writer to write the records to.
+     * @param window     the size of the reorder window, or zero to write the records in the order of completion.
+     * @param checkpoint the checkpoint receiving the keys of the written items, or null.
+     */
+    public RecordWriter(Writer writer, int window, Checkpoint checkpoint) {
+        this.writer = writer;
+        this.window = window;
+        this.checkpoint = checkpoint;
+        this.slots = (window > 0) ? new AtomicReferenceArray<>(window) : null;
+        this.buffers = ThreadLocal.withInitial(() -> {
+            final Buffer buffer = new Buffer();
+            allBuffers.add(buffer);
+            return buffer;
+        });
+        this.thread = new Thread(this::drain, "RecordWriter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        Metrics.getInstance().addGauge("writer", depth);
+    }
+
+    /**
+     * Process the item and write its records, if any. The printer passed to the consumer writes to the buffer
+     * of the current thread, so it must not be used outside the consumer.
+     *
+     * @param seq     the sequence number of the item, which is ignored in the unordered mode.
+     * @param printer the consumer printing the records of the item.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void write(long seq, Printer printer) throws IOException {
+        write(seq, null, printer);
+    }
+
+    /**
+     * Process the item identified by the key and write its records, if any. The key is passed to the checkpoint
+     * once the records are written.
+     *
+     * @param seq     the sequence number of the item, which is ignored in the unordered mode.
+     * @param key     the item key, or null.
+     * @param printer the consumer printing the records of the item.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void write(long seq, String key, Printer printer) throws IOException {
+        final Buffer buffer = buffers.get();
+        try {
+            printer.print(buffer.csv);
+        } catch (final IOException | RuntimeException | Error ex) {
+            fail(ex);
+            throw ex;
+        }
+
+        if (key != null) buffer.keys.add(key);
+
+        if (window == 0) {
+            if (buffer.text.length() >= BATCH_SIZE || buffer.keys.size() >= CHECKPOINT_SIZE) enqueue(buffer.take());
+        } else {
+            final Batch batch = buffer.take();
+            while (seq >= next + window) {
+                check();
+                LockSupport.parkNanos(100_000);
+            }
+            slots.set((int) (seq % window), batch);
+            LockSupport.unpark(thread);
+        }
+        check();
+    }
+
+    private void enqueue(Batch batch) throws IOException {
+        try {
+            while (!batches.offer(batch, 100, TimeUnit.MILLISECONDS)) check();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+    }
+
+    private void drain() {
+        try {
+            if (window == 0) {
+                for (Batch batch = batches.take(); batch != END; batch = batches.take()) write(batch);
+            } else {
+                while (failure.get() == null) {
+                    final int slot = (int) (next % window);
+                    final Batch batch = slots.getAndSet(slot, null);
+                    if (batch != null) {
+                        write(batch);
+                        next++;
+                    } else if (closing) {
+                        break;
+                    } else {
+                        LockSupport.parkNanos(this, 1_000_000);
+                    }
+                }
+            }
+            writer.flush();
+            if (checkpoint != null && failure.get() == null) checkpoint.commit(pending);
+        } catch (final IOException | InterruptedException | RuntimeException | Error ex) {
+            fail(ex);
+        }
+    }
+
+    private void write(Batch batch) throws IOException {
+        writer.write(batch.text);
+        if (checkpoint == null) return;
+        pending.addAll(batch.keys);
+        if (pending.size() >= CHECKPOINT_SIZE || System.nanoTime() - checkpointTime >= CHECKPOINT_NANOS) {
+            writer.flush();
+            checkpoint.commit(pending);
+            pending.clear();
+            checkpointTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Abort the writer, e.g., when an item has failed outside the printer, so its sequence number will never
+     * be written. The threads waiting for the preceding items and all the subsequent calls fail, and the records
+     * that have not been passed to the I/O thread yet are discarded.
+     *
+     * @param cause the failure.
+     */
+    public void abort(Throwable cause) {
+        fail(cause);
+        LockSupport.unpark(thread);
+    }
+
+    private void fail(Throwable ex) {
+        failure.compareAndSet(null, ex);
+    }
+
+    private void check() throws IOException {
+        final Throwable ex = failure.get();
+        if (ex != null) throw new IOException("The writer has failed", ex);
+    }
+
+    /**
+     * Write the remaining records, stop the I/O thread, and close the writer. This method must be called after all the
+     * threads have finished writing. In case of a failure, the records that have not been passed to the I/O
+     * thread yet are discarded, since they might be incomplete.
+     *
+     * @throws IOException when an I/O error has occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            try {
+                if (window == 0) {
+                    if (failure.get() == null) for (final Buffer buffer : allBuffers) {
+                        if (buffer.text.length() > 0 || !buffer.keys.isEmpty()) enqueue(buffer.take());
+                    }
+                    enqueue(END);
+                } else {
+                    closing = true;
+                    LockSupport.unpark(thread);
+                }
+                thread.join();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            } finally {
+                if (thread.isAlive()) thread.interrupt();
+            }
+            check();
+            if (window > 0) {
+                for (int i = 0; i < window; i++) {
+                    if (slots.get(i) != null) throw new IOException("The item " + next + " has not been written");
+                }
+            }
+        } finally {
+            Metrics.getInstance().removeGauge("writer", depth);
+            writer.close();
+        }
+    }
+
+    /**
+     * Get the number of batches waiting for the I/O thread.
+     *
+     * @return the number of batches.
+     */
+    private int depth() {
+        if (window == 0) return batches.size();
+        int waiting = 0;
+        for (int i = 0; i < window; i++) if (slots.get(i) != null) waiting++;
+        return waiting;
+    }
+
+    /**
+     * The consumer printing the records of an item.
+     */
+    @FunctionalInterface
+    public interface Printer {
+        /**
+         * Print the records.
+         *
+         * @param csv the CSV printer.
+         * @throws IOException when an I/O error has occurred.
+         */
+        void print(CSVPrinter csv) throws IOException;
+    }
+
+    /**
+     * The checkpoint receiving the keys of the items whose records have been written and flushed.
+     */
+    @FunctionalInterface
+    public interface Checkpoint {
+        /**
+         * Commit the written items.
+         *
+         * @param keys the item keys.
+         * @throws IOException when an I/O error has occurred.
+         */
+        void commit(Collection<String> keys) throws IOException;
+    }
+
+    /**
+     * The formatted records and the keys of the corresponding items.
+     */
+    private static final class Batch {
+        private final String text;
+        private final List<String> keys;
+
+        private Batch(String text, List<String> keys) {
+            this.text = text;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * The thread-local buffer.
+     */
+    private static final class Buffer {
+        private final StringBuilder text = new StringBuilder(1024);
+        private List<String> keys = new ArrayList<>();
+        private final CSVPrinter csv;
+
+        private Buffer() {
+            try {
+                csv = CSVFormat.MYSQL.print(text);
+            } catch (final IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private Batch take() {
+            final Batch batch = new Batch(text.toString(), keys.isEmpty() ? Collections.emptyList() : keys);
+            text.setLength(0);
+            if (!keys.isEmpty()) keys = new ArrayList<>();
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Input/output stages used by the actions.
+ */
+package de.tudarmstadt.lt.babelnet.extract.io;
@@ -0,0 +1,96 @@
+package de.tudarmstadt.lt.babelnet.extract.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The concurrent latency histogram with the power-of-two buckets. The bucket {@code i} counts the durations
+ * from {@code 2^i} to {@code 2^(i+1) - 1} nanoseconds, so recording takes a few instructions and no locks,
+ * and the percentiles are estimated within a factor of two. The same buckets suit any other positive values,
+ * e.g., the sizes.
+ *
+ * @author Dmitry Ustalov
+ */
+public class Histogram {
+    private final LongAdder[] buckets = new LongAdder[64];
+    private final LongAdder count = new LongAdder(), sum = new LongAdder();
+
+    /**
+     * Initialize the histogram.
+     */
+    public Histogram() {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    /**
+     * Record the duration.
+     *
+     * @param nanos the duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 1) nanos = 1;
+        buckets[63 - Long.numberOfLeadingZeros(nanos)].increment();
+        count.increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * Get the number of the recorded durations.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the mean duration.
+     *
+     * @return the mean duration in nanoseconds, or zero if nothing has been recorded.
+     */
+    public double getMean() {
+        final long n = count.sum();
+        return (n == 0) ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Estimate the percentile as the upper bound of the bucket containing it.
+     *
+     * @param p the percentile from zero to one.
+     * @return the duration in nanoseconds, or zero if nothing has been recorded.
+     */
+    public long getPercentile(double p) {
+        final long[] counts = new long[buckets.length];
+        long n = 0;
+        for (int i = 0; i < buckets.length; i++) n += counts[i] = buckets[i].sum();
+        if (n == 0) return 0;
+
+        final long rank = (long) Math.ceil(p * n);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) return (i >= 62) ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the counts of the buckets. The bucket {@code i} counts the values from {@code 2^i} to {@code 2^(i+1) - 1},
+     * and the values below one are counted in the first bucket.
+     *
+     * @return the counts.
+     */
+    public long[] getBuckets() {
+        final long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) counts[i] = buckets[i].sum();
+        return counts;
+    }
+
+    /**
+     * Reset the histogram.
+     */
+    public void reset() {
+        for (final LongAdder bucket : buckets) bucket.reset();
+        count.reset();
+        sum.reset();
+    }
+}
@@ -0,0 +1,307 @@
+package de.tudarmstadt.lt.babelnet.extract.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The process-wide metrics shared by the actions: the number of processed items, the latency histograms
+ * of the BabelNet calls, the depths of the queues between the stages, and the sizes of the ego networks.
+ * Updating the metrics takes no locks. While an action is running, the metrics are periodically summarized
+ * in the log and are available through JMX as {@value #OBJECT_NAME}.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class Metrics implements MetricsMXBean {
+    /**
+     * The name of the management bean.
+     */
+    public static final String OBJECT_NAME = "de.tudarmstadt.lt.babelnet.extract:type=Metrics";
+
+    private static final long REPORT_PERIOD_MILLIS = 10_000;
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final Histogram[] calls = new Histogram[Call.values().length];
+    private final LongAdder items = new LongAdder();
+    private final Histogram sizes = new Histogram();
+    private final LongAdder truncated = new LongAdder();
+    private final ConcurrentMap<String, Queue<IntSupplier>> gauges = new ConcurrentHashMap<>();
+    private final AtomicBoolean registered = new AtomicBoolean();
+    private volatile long started = System.nanoTime(), total = 0;
+
+    private Metrics() {
+        for (int i = 0; i < calls.length; i++) calls[i] = new Histogram();
+    }
+
+    /**
+     * Get the metrics instance.
+     *
+     * @return the metrics.
+     */
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record the duration of the BabelNet call.
+     *
+     * @param call  the call.
+     * @param nanos the duration in nanoseconds.
+     */
+    public void record(Call call, long nanos) {
+        calls[call.ordinal()].record(nanos);
+    }
+
+    /**
+     * Get the latency histogram of the BabelNet call.
+     *
+     * @param call the call.
+     * @return the histogram.
+     */
+    public Histogram getHistogram(Call call) {
+        return calls[call.ordinal()];
+    }
+
+    /**
+     * Count the processed item.
+     */
+    public void item() {
+        items.increment();
+    }
+
+    /**
+     * Record the size of the extracted ego network.
+     *
+     * @param size      the number of neighbours.
+     * @param truncated whether the walk has been stopped by its budget.
+     */
+    public void egoNetwork(int size, boolean truncated) {
+        sizes.record(size);
+        if (truncated) this.truncated.increment();
+    }
+
+    /**
+     * Register the queue depth gauge. The gauges having the same name are summed up.
+     *
+     * @param name  the queue name.
+     * @param gauge the gauge.
+     */
+    public void addGauge(String name, IntSupplier gauge) {
+        gauges.computeIfAbsent(name, key -> new ConcurrentLinkedQueue<>()).add(gauge);
+    }
+
+    /**
+     * Unregister the queue depth gauge.
+     *
+     * @param name  the queue name.
+     * @param gauge the gauge.
+     */
+    public void removeGauge(String name, IntSupplier gauge) {
+        final Queue<IntSupplier> queue = gauges.get(name);
+        if (queue != null) queue.remove(gauge);
+    }
+
+    /**
+     * Reset the metrics and start reporting the progress to the log until the returned handle is closed,
+     * which also logs the final summary.
+     *
+     * @param logger the logger instance.
+     * @param total  the expected number of items, or zero if unknown.
+     * @return the handle stopping the reporting.
+     */
+    public Closeable start(Logger logger, long total) {
+        items.reset();
+        for (final Histogram histogram : calls) histogram.reset();
+        sizes.reset();
+        truncated.reset();
+        this.total = total;
+        this.started = System.nanoTime();
+        register(logger);
+
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> logger.log(Level.INFO, "Progress: {0}", summarize()),
+                REPORT_PERIOD_MILLIS, REPORT_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+
+        return () -> {
+            executor.shutdownNow();
+            logger.log(Level.INFO, "Processed {0}", summarize());
+            if (sizes.getCount() > 0) logger.log(Level.INFO, "Ego network sizes: {0}", summarizeSizes());
+        };
+    }
+
+    private void register(Logger logger) {
+        if (!registered.compareAndSet(false, true)) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (final JMException ex) {
+            logger.log(Level.WARNING, "Cannot register the metrics bean: {0}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Summarize the metrics in a single line.
+     *
+     * @return the summary.
+     */
+    public String summarize() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(getItems()).append(" item(s)");
+        if (total > 0) sb.append(" of ").append(total);
+        sb.append(", ").append(String.format(Locale.ROOT, "%.1f", getRate())).append(" item(s)/s");
+        final long eta = getEtaSeconds();
+        if (eta >= 0) sb.append(String.format(Locale.ROOT, ", ETA %d:%02d:%02d", eta / 3600, eta / 60 % 60, eta % 60));
+
+        for (final Call call : Call.values()) {
+            final Histogram histogram = calls[call.ordinal()];
+            if (histogram.getCount() == 0) continue;
+            sb.append(String.format(Locale.ROOT, "; %s: %d call(s), mean %.2f ms, p99 %.2f ms",
+                    call.getName(), histogram.getCount(), histogram.getMean() / 1e6, histogram.getPercentile(0.99) / 1e6));
+        }
+
+        final Map<String, Integer> depths = getQueueDepths();
+        if (!depths.isEmpty()) {
+            sb.append("; queues:");
+            for (final Map.Entry<String, Integer> entry : depths.entrySet()) {
+                sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Summarize the histogram of the ego network sizes in a single line.
+     *
+     * @return the summary.
+     */
+    public String summarizeSizes() {
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<String, Long> entry : getEgoNetworkSizes().entrySet()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        sb.append("; ").append(getTruncated()).append(" truncated");
+        return sb.toString();
+    }
+
+    @Override
+    public long getItems() {
+        return items.sum();
+    }
+
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public double getRate() {
+        final double seconds = (System.nanoTime() - started) / 1e9;
+        return (seconds > 0) ? getItems() / seconds : 0;
+    }
+
+    @Override
+    public long getEtaSeconds() {
+        final long done = getItems();
+        final double rate = getRate();
+        if (total <= 0 || rate <= 0) return -1;
+        return (long) (Math.max(total - done, 0) / rate);
+    }
+
+    @Override
+    public Map<String, Long> getCallCounts() {
+        final Map<String, Long> map = new LinkedHashMap<>();
+        for (final Call call : Call.values()) map.put(call.getName(), calls[call.ordinal()].getCount());
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getCallMeanMillis() {
+        final Map<String, Double> map = new LinkedHashMap<>();
+        for (final Call call : Call.values()) map.put(call.getName(), calls[call.ordinal()].getMean() / 1e6);
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getCallP99Millis() {
+        final Map<String, Double> map = new LinkedHashMap<>();
+        for (final Call call : Call.values()) map.put(call.getName(), calls[call.ordinal()].getPercentile(0.99) / 1e6);
+        return map;
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        final Map<String, Integer> map = new TreeMap<>();
+        for (final Map.Entry<String, Queue<IntSupplier>> entry : gauges.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            int depth = 0;
+            for (final IntSupplier gauge : entry.getValue()) depth += gauge.getAsInt();
+            map.put(entry.getKey(), depth);
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getEgoNetworkSizes() {
+        final Map<String, Long> map = new LinkedHashMap<>();
+        final long[] counts = sizes.getBuckets();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            map.put((i == 0) ? "0-1" : (1L << i) + "-" + ((1L << (i + 1)) - 1), counts[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public long getTruncated() {
+        return truncated.sum();
+    }
+
+    /**
+     * The instrumented BabelNet calls.
+     */
+    public enum Call {
+        /**
+         * Loading the synset by its ID.
+         */
+        GET_SYNSET("getSynset"),
+        /**
+         * Getting the edges of the synset.
+         */
+        GET_EDGES("getEdges"),
+        /**
+         * Getting the senses of the synset.
+         */
+        GET_SENSES("getSenses"),
+        /**
+         * Looking up the synsets by the lemma.
+         */
+        GET_SYNSETS("getSynsets");
+
+        private final String name;
+
+        Call(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Get the name of the call.
+         *
+         * @return the name.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+}
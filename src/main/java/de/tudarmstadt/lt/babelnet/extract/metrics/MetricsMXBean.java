@@ -0,0 +1,80 @@
+package de.tudarmstadt.lt.babelnet.extract.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface exposing the metrics through JMX.
+ *
+ * @author Dmitry Ustalov
+ */
+public interface MetricsMXBean {
+    /**
+     * Get the number of items processed by the current action.
+     *
+     * @return the number of items.
+     */
+    long getItems();
+
+    /**
+     * Get the expected number of items, if known.
+     *
+     * @return the number of items, or zero if unknown.
+     */
+    long getTotal();
+
+    /**
+     * Get the average throughput of the current action.
+     *
+     * @return the number of items per second.
+     */
+    double getRate();
+
+    /**
+     * Get the estimated time remaining.
+     *
+     * @return the number of seconds, or -1 if unknown.
+     */
+    long getEtaSeconds();
+
+    /**
+     * Get the number of the BabelNet calls.
+     *
+     * @return the mapping between the call names and their counts.
+     */
+    Map<String, Long> getCallCounts();
+
+    /**
+     * Get the mean latencies of the BabelNet calls.
+     *
+     * @return the mapping between the call names and their mean latencies in milliseconds.
+     */
+    Map<String, Double> getCallMeanMillis();
+
+    /**
+     * Get the 99th percentile latencies of the BabelNet calls.
+     *
+     * @return the mapping between the call names and their latencies in milliseconds.
+     */
+    Map<String, Double> getCallP99Millis();
+
+    /**
+     * Get the current depths of the queues.
+     *
+     * @return the mapping between the queue names and their depths.
+     */
+    Map<String, Integer> getQueueDepths();
+
+    /**
+     * Get the histogram of the ego network sizes.
+     *
+     * @return the mapping between the ranges of the sizes and the numbers of the ego networks.
+     */
+    Map<String, Long> getEgoNetworkSizes();
+
+    /**
+     * Get the number of the ego networks truncated by the walk budget.
+     *
+     * @return the number of ego networks.
+     */
+    long getTruncated();
+}
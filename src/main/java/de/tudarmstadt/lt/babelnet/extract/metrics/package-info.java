@@ -0,0 +1,4 @@
+/**
+ * Throughput and latency instrumentation shared by the actions.
+ */
+package de.tudarmstadt.lt.babelnet.extract.metrics;
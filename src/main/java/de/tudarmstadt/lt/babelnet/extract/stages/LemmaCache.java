@@ -0,0 +1,222 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import it.uniroma1.lcl.babelnet.BabelNet;
+import it.uniroma1.lcl.babelnet.BabelSynset;
+import it.uniroma1.lcl.babelnet.data.BabelPOS;
+import it.uniroma1.lcl.jlt.util.Language;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * The concurrent cache of the synsets containing the given lemma. The lookups of the same lemma are coalesced:
+ * the first thread queries BabelNet, and the concurrent callers wait for its result instead of querying the index
+ * again. The failed lookups are not cached. The found synsets are kept until the memory budget is exhausted,
+ * after which the new lemmas are not cached at all, so the number of entries is bounded by the budget. Such lemmas
+ * are looked up again every time they occur, and their synsets are passed to the listener every time as well.
+ *
+ * @author Dmitry Ustalov
+ */
+public class LemmaCache {
+    private final Lookup lookup;
+    private final Consumer<Set<String>> listener;
+    private final long budget;
+    private final ConcurrentMap<Key, CompletableFuture<Set<String>>> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private final AtomicLong used = new AtomicLong();
+
+    /**
+     * Initialize the cache.
+     *
+     * @param babelnet the BabelNet instance.
+     */
+    public LemmaCache(BabelNet babelnet) {
+        this(babelnet, synsets -> {
+        }, Long.MAX_VALUE);
+    }
+
+    /**
+     * Initialize the cache notifying the listener of every successful lookup in BabelNet, so the synsets can be
+     * collected without traversing the cache. The synsets of the lemmas that are not cached are passed repeatedly.
+     *
+     * @param babelnet the BabelNet instance.
+     * @param listener the consumer receiving the synset IDs found by every lookup in BabelNet.
+     * @param budget   the approximate number of bytes of the cached lemmas and synset IDs.
+     */
+    public LemmaCache(BabelNet babelnet, Consumer<Set<String>> listener, long budget) {
+        this((lemma, language, pos) -> lookup(babelnet, lemma, language, pos), listener, budget);
+    }
+
+    /**
+     * Initialize the cache of the given lookup.
+     *
+     * @param lookup   the lookup of the synset IDs.
+     * @param listener the consumer receiving the synset IDs found by every lookup in BabelNet.
+     * @param budget   the approximate number of bytes of the cached lemmas and synset IDs.
+     */
+    LemmaCache(Lookup lookup, Consumer<Set<String>> listener, long budget) {
+        this.lookup = lookup;
+        this.listener = listener;
+        this.budget = budget;
+    }
+
+    /**
+     * The lookup of the synsets containing the lemma.
+     */
+    @FunctionalInterface
+    interface Lookup {
+        /**
+         * Find the IDs of the synsets containing the lemma.
+         *
+         * @param lemma    the lemma.
+         * @param language the language.
+         * @param pos      the part of speech.
+         * @return the unmodifiable set of synset IDs.
+         * @throws IOException when an I/O error has occurred.
+         */
+        Set<String> find(String lemma, Language language, BabelPOS pos) throws IOException;
+    }
+
+    /**
+     * Get the IDs of the synsets containing the given lemma, querying BabelNet only once per lemma.
+     *
+     * @param lemma    the lemma.
+     * @param language the language.
+     * @param pos      the part of speech.
+     * @return the unmodifiable set of synset IDs.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public Set<String> get(String lemma, Language language, BabelPOS pos) throws IOException {
+        final Key key = new Key(lemma, language, pos);
+        CompletableFuture<Set<String>> future = entries.get(key);
+        if (future == null && used.get() > budget) {
+            misses.increment();
+            final Set<String> synsets = lookup.find(lemma, language, pos);
+            listener.accept(synsets);
+            return synsets;
+        }
+        if (future == null) {
+            final CompletableFuture<Set<String>> created = new CompletableFuture<>();
+            future = entries.putIfAbsent(key, created);
+            if (future == null) {
+                misses.increment();
+                try {
+                    final Set<String> synsets = lookup.find(lemma, language, pos);
+                    listener.accept(synsets);
+                    created.complete(synsets);
+                    used.addAndGet(estimate(lemma, synsets));
+                    return synsets;
+                } catch (final IOException | RuntimeException | Error ex) {
+                    entries.remove(key, created);
+                    created.completeExceptionally(ex);
+                    throw ex;
+                }
+            }
+        }
+
+        hits.increment();
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (final ExecutionException ex) {
+            throw new IOException("The lookup of \"" + lemma + "\" has failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Query BabelNet for the IDs of the synsets containing the given lemma bypassing the cache.
+     *
+     * @param babelnet the BabelNet instance.
+     * @param lemma    the lemma.
+     * @param language the language.
+     * @param pos      the part of speech.
+     * @return the unmodifiable set of synset IDs.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public static Set<String> lookup(BabelNet babelnet, String lemma, Language language, BabelPOS pos) throws IOException {
+        final long start = System.nanoTime();
+        final List<BabelSynset> found = babelnet.getSynsets(lemma, language, pos);
+        Metrics.getInstance().record(Metrics.Call.GET_SYNSETS, System.nanoTime() - start);
+        final Set<String> synsets = new HashSet<>();
+        for (final BabelSynset synset : found) synsets.add(synset.getId().toString());
+        return Collections.unmodifiableSet(synsets);
+    }
+
+    /**
+     * Estimate the heap size of the cache entry.
+     *
+     * @param lemma   the lemma.
+     * @param synsets the synset IDs.
+     * @return the number of bytes.
+     */
+    private static long estimate(String lemma, Set<String> synsets) {
+        long bytes = 160 + 2L * lemma.length();
+        for (final String synsetID : synsets) bytes += 96 + 2L * synsetID.length();
+        return bytes;
+    }
+
+    /**
+     * Get the number of lookups served from the cache, including the ones that waited for a concurrent lookup.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that queried BabelNet.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of cached lemmas.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The cache key.
+     */
+    private static final class Key {
+        private final String lemma;
+        private final Language language;
+        private final BabelPOS pos;
+
+        private Key(String lemma, Language language, BabelPOS pos) {
+            this.lemma = lemma;
+            this.language = language;
+            this.pos = pos;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return lemma.equals(key.lemma) && language == key.language && pos == key.pos;
+        }
+
+        @Override
+        public int hashCode() {
+            return (lemma.hashCode() * 31 + language.hashCode()) * 31 + Objects.hashCode(pos);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The inverted index from the sense lemmas to the synsets containing them and the sense frequencies. The lemmas
+ * and the synset IDs are interned in the tables, so every distinct string is stored once per table, and every
+ * posting is stored as three integers in the primitive arrays. Every thread adds the synsets to its own table
+ * without locking, and the tables are merged when the index is printed, which has to happen after all the synsets
+ * have been added.
+ *
+ * @author Dmitry Ustalov
+ */
+public class LemmaIndex {
+    private final Queue<Table> tables = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Table> local = ThreadLocal.withInitial(() -> {
+        final Table table = new Table();
+        tables.add(table);
+        return table;
+    });
+
+    /**
+     * Add the lemmas of the synset.
+     *
+     * @param synsetID    the synset ID.
+     * @param lemmas      the lemmas.
+     * @param frequencies the sense frequencies of the lemmas.
+     * @param count       the number of lemmas.
+     */
+    public void add(String synsetID, String[] lemmas, int[] frequencies, int count) {
+        final Table table = local.get();
+        final int synset = table.addSynset(synsetID);
+        table.ensureCapacity(table.size + count);
+        for (int i = 0; i < count; i++) table.addPosting(table.intern(lemmas[i]), synset, frequencies[i]);
+    }
+
+    /**
+     * Get the number of distinct lemmas.
+     *
+     * @return the number of lemmas.
+     */
+    public int getLemmaCount() {
+        if (tables.size() == 1) return tables.peek().lemmaCount;
+        final Set<String> lemmas = new HashSet<>();
+        for (final Table table : tables) lemmas.addAll(table.ids.keySet());
+        return lemmas.size();
+    }
+
+    /**
+     * Get the number of the lemma occurrences.
+     *
+     * @return the number of postings.
+     */
+    public int size() {
+        int size = 0;
+        for (final Table table : tables) size += table.size;
+        return size;
+    }
+
+    /**
+     * Print the index. Every record contains the lemma and the {@code synsetID:frequency} pairs separated by commas.
+     * The lemmas and the synsets of every lemma are sorted, so the output does not depend on the order
+     * in which the synsets were added.
+     *
+     * @param csv the CSV printer.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public void print(CSVPrinter csv) throws IOException {
+        final Table table = merge();
+        final int size = table.size;
+        final int[] lemmaRanks = ranks(table.lemmas, table.lemmaCount), synsetRanks = ranks(table.synsets, table.synsetCount);
+
+        final long[] order = new long[size];
+        for (int i = 0; i < size; i++) order[i] = (long) lemmaRanks[table.postingLemmas[i]] << 32 | i;
+        Arrays.sort(order);
+
+        final StringBuilder text = new StringBuilder();
+        long[] group = new long[16];
+        for (int start = 0, end; start < size; start = end) {
+            final int lemma = table.postingLemmas[(int) order[start]];
+            end = start + 1;
+            while (end < size && table.postingLemmas[(int) order[end]] == lemma) end++;
+
+            if (end - start > group.length) group = new long[Integer.highestOneBit(end - start) << 1];
+            for (int i = start; i < end; i++) {
+                final int posting = (int) order[i];
+                group[i - start] = (long) synsetRanks[table.postingSynsets[posting]] << 32 | posting;
+            }
+            Arrays.sort(group, 0, end - start);
+
+            text.setLength(0);
+            for (int i = 0; i < end - start; i++) {
+                final int posting = (int) group[i];
+                if (i > 0) text.append(',');
+                text.append(table.synsets[table.postingSynsets[posting]]).append(':').append(table.postingFrequencies[posting]);
+            }
+            csv.printRecord(table.lemmas[lemma], text);
+        }
+    }
+
+    /**
+     * Merge the tables of all the threads into one.
+     *
+     * @return the merged table.
+     */
+    private Table merge() {
+        if (tables.size() == 1) return tables.peek();
+        final Table merged = new Table();
+        for (final Table table : tables) {
+            final int[] lemmas = new int[table.lemmaCount];
+            for (int i = 0; i < table.lemmaCount; i++) lemmas[i] = merged.intern(table.lemmas[i]);
+            final int offset = merged.synsetCount;
+            for (int i = 0; i < table.synsetCount; i++) merged.addSynset(table.synsets[i]);
+            merged.ensureCapacity(merged.size + table.size);
+            for (int i = 0; i < table.size; i++) {
+                merged.addPosting(lemmas[table.postingLemmas[i]], offset + table.postingSynsets[i], table.postingFrequencies[i]);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Compute the position of every string in the sorted order.
+     *
+     * @param strings the strings.
+     * @param count   the number of strings.
+     * @return the ranks.
+     */
+    private static int[] ranks(String[] strings, int count) {
+        final String[] sorted = Arrays.copyOf(strings, count);
+        Arrays.sort(sorted);
+        final int[] ranks = new int[count];
+        for (int i = 0; i < count; i++) ranks[i] = Arrays.binarySearch(sorted, strings[i]);
+        return ranks;
+    }
+
+    /**
+     * The interned lemmas and synset IDs and the postings added by a single thread.
+     */
+    private static final class Table {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] lemmas = new String[1024], synsets = new String[1024];
+        private int lemmaCount, synsetCount;
+        private int[] postingLemmas = new int[1024], postingSynsets = new int[1024], postingFrequencies = new int[1024];
+        private int size;
+
+        private int intern(String lemma) {
+            final Integer id = ids.get(lemma);
+            if (id != null) return id;
+            if (lemmaCount == lemmas.length) lemmas = Arrays.copyOf(lemmas, lemmaCount * 2);
+            lemmas[lemmaCount] = lemma;
+            ids.put(lemma, lemmaCount);
+            return lemmaCount++;
+        }
+
+        private int addSynset(String synsetID) {
+            if (synsetCount == synsets.length) synsets = Arrays.copyOf(synsets, synsetCount * 2);
+            synsets[synsetCount] = synsetID;
+            return synsetCount++;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= postingLemmas.length) return;
+            final int length = Math.max(postingLemmas.length * 2, capacity);
+            postingLemmas = Arrays.copyOf(postingLemmas, length);
+            postingSynsets = Arrays.copyOf(postingSynsets, length);
+            postingFrequencies = Arrays.copyOf(postingFrequencies, length);
+        }
+
+        private void addPosting(int lemma, int synset, int frequency) {
+            postingLemmas[size] = lemma;
+            postingSynsets[size] = synset;
+            postingFrequencies[size] = frequency;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import it.uniroma1.lcl.babelnet.BabelSense;
+import it.uniroma1.lcl.babelnet.BabelSynset;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * The lemmas stage lists the distinct sense lemmas of the synset in the given language.
+ * The record contains the synset ID, the number of lemmas, and the lemmas separated by commas.
+ *
+ * @author Dmitry Ustalov
+ */
+public class LemmasStage implements Stage {
+    private final Language language;
+
+    /**
+     * Initialize the stage.
+     *
+     * @param language the language.
+     */
+    public LemmasStage(Language language) {
+        this.language = language;
+    }
+
+    @Override
+    public void print(String synsetID, BabelSynset synset, CSVPrinter csv) throws IOException {
+        if (synset == null) return;
+        final long start = System.nanoTime();
+        final List<BabelSense> senses = synset.getSenses(language);
+        Metrics.getInstance().record(Metrics.Call.GET_SENSES, System.nanoTime() - start);
+        if (senses.isEmpty()) return;
+
+        final Set<String> lemmas = senses.stream().map(BabelSense::getSimpleLemma).collect(toSet());
+        csv.printRecord(synsetID, lemmas.size(), lemmas.stream().collect(joining(", ")));
+    }
+}
@@ -0,0 +1,90 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import de.tudarmstadt.lt.babelnet.extract.graph.BabelNetGraph;
+import de.tudarmstadt.lt.babelnet.extract.graph.Budget;
+import de.tudarmstadt.lt.babelnet.extract.graph.Graph;
+import de.tudarmstadt.lt.babelnet.extract.graph.Traversal;
+import de.tudarmstadt.lt.babelnet.extract.graph.Walker;
+import de.tudarmstadt.lt.babelnet.extract.io.EgoNetworks;
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import it.uniroma1.lcl.babelnet.BabelSynset;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * The neighbours stage extracts the n-level ego network of the synset. The record contains the synset ID and
+ * the {@code synsetID:level} pairs separated by commas in the iteration order of the hash map keyed by the synset IDs,
+ * which the records have always been written in. Every thread uses its own traversal. If the graph is queried
+ * from BabelNet and the synset is given, its edges are taken from the synset instead of loading it again.
+ * If the walk has been stopped by its budget, the record contains the third field {@value EgoNetworks#TRUNCATED}.
+ * The size of every ego network is recorded in the metrics.
+ *
+ * @author Dmitry Ustalov
+ */
+public class NeighboursStage implements Stage {
+    private final Graph graph;
+    private final ThreadLocal<Traversal> traversals;
+
+    /**
+     * Initialize the stage.
+     *
+     * @param graph the graph.
+     * @param depth the graph depth.
+     */
+    public NeighboursStage(Graph graph, int depth) {
+        this(graph, depth, Budget.UNLIMITED);
+    }
+
+    /**
+     * Initialize the stage limiting every walk.
+     *
+     * @param graph  the graph.
+     * @param depth  the graph depth.
+     * @param budget the limits of every walk.
+     */
+    public NeighboursStage(Graph graph, int depth, Budget budget) {
+        this(graph, () -> new Walker(graph, depth, budget));
+    }
+
+    /**
+     * Initialize the stage with the given traversals, e.g., the ones sharing the precomputed neighbourhoods.
+     *
+     * @param graph      the graph.
+     * @param traversals the supplier creating the traversal for every thread.
+     */
+    public NeighboursStage(Graph graph, Supplier<Traversal> traversals) {
+        this.graph = graph;
+        this.traversals = ThreadLocal.withInitial(traversals);
+    }
+
+    @Override
+    public void print(String synsetID, BabelSynset synset, CSVPrinter csv) throws IOException {
+        if (synset != null && graph instanceof BabelNetGraph) ((BabelNetGraph) graph).put(synsetID, synset);
+
+        final Traversal traversal = traversals.get();
+        final int size = traversal.walk(graph.lookup(synsetID));
+        Metrics.getInstance().egoNetwork(size, traversal.isTruncated());
+        if (size > 0) {
+            // The iteration order of the keys sharing a bucket of the hash map depends on their insertion order,
+            // so the map is filled in the walk order starting from the source, as the records have always been written.
+            final Map<String, Integer> levels = new HashMap<>();
+            levels.put(synsetID, 0);
+            for (int i = 0; i < size; i++) levels.put(graph.getId(traversal.getNeighbour(i)), traversal.getLevel(i));
+            levels.remove(synsetID);
+            final String neighbours = levels.entrySet().stream().
+                    map(entry -> entry.getKey() + ':' + entry.getValue()).
+                    collect(joining(","));
+            if (traversal.isTruncated()) {
+                csv.printRecord(synsetID, neighbours, EgoNetworks.TRUNCATED);
+            } else {
+                csv.printRecord(synsetID, neighbours);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The size-bounded cache of the formatted records evicting the least recently used entries. The records are
+ * formatted by the stages into the thread-local buffer once and then reused as text, so a hit costs a single
+ * map lookup. The lookups of the same key missing the cache concurrently are not coalesced.
+ *
+ * @author Dmitry Ustalov
+ */
+public class ResultCache {
+    private final Map<String, String> entries;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    private final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+
+    /**
+     * Initialize the cache.
+     *
+     * @param capacity the maximal number of entries.
+     */
+    public ResultCache(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("The capacity must be positive");
+        this.entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the records for the given key, formatting them using the printer on a miss.
+     *
+     * @param key     the key.
+     * @param printer the consumer printing the records.
+     * @return the formatted records, which might be empty.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public String get(String key, Printer printer) throws IOException {
+        synchronized (entries) {
+            final String text = entries.get(key);
+            if (text != null) {
+                hits.increment();
+                return text;
+            }
+        }
+        misses.increment();
+
+        final Buffer buffer = buffers.get();
+        buffer.text.setLength(0);
+        printer.print(buffer.csv);
+        final String text = buffer.text.toString();
+        synchronized (entries) {
+            entries.put(key, text);
+        }
+        return text;
+    }
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The consumer printing the records.
+     */
+    @FunctionalInterface
+    public interface Printer {
+        /**
+         * Print the records.
+         *
+         * @param csv the CSV printer.
+         * @throws IOException when an I/O error has occurred.
+         */
+        void print(CSVPrinter csv) throws IOException;
+    }
+
+    /**
+     * The thread-local formatting buffer.
+     */
+    private static final class Buffer {
+        private final StringBuilder text = new StringBuilder();
+        private final CSVPrinter csv;
+
+        private Buffer() {
+            try {
+                csv = CSVFormat.MYSQL.print(text);
+            } catch (final IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import it.uniroma1.lcl.babelnet.BabelSense;
+import it.uniroma1.lcl.babelnet.BabelSynset;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The senses stage extracts the sense lemmas of the synset in the given language and their frequencies.
+ * The record contains the synset ID and the {@code lemma:frequency} pairs separated by commas. The lemmas are
+ * ordered case-insensitively, and only the first of the lemmas differing in case only is kept. Every thread
+ * collects the lemmas into its own reusable buffers, so no intermediate collections are created.
+ * If the lemma index is given, the lemmas of every synset are added to it as well.
+ *
+ * @author Dmitry Ustalov
+ */
+public class SensesStage implements Stage {
+    private final Language language;
+    private final LemmaIndex index;
+    private final ThreadLocal<Senses> buffers = ThreadLocal.withInitial(Senses::new);
+
+    /**
+     * Initialize the stage.
+     *
+     * @param language the language.
+     */
+    public SensesStage(Language language) {
+        this(language, null);
+    }
+
+    /**
+     * Initialize the stage filling the lemma index.
+     *
+     * @param language the language.
+     * @param index    the lemma index, or null.
+     */
+    public SensesStage(Language language, LemmaIndex index) {
+        this.language = language;
+        this.index = index;
+    }
+
+    @Override
+    public void print(String synsetID, BabelSynset synset, CSVPrinter csv) throws IOException {
+        if (synset == null) return;
+        final long start = System.nanoTime();
+        final List<BabelSense> allSenses = synset.getSenses(language);
+        Metrics.getInstance().record(Metrics.Call.GET_SENSES, System.nanoTime() - start);
+
+        final Senses senses = buffers.get();
+        senses.clear();
+        for (final BabelSense sense : allSenses) senses.add(normalize(sense.getSimpleLemma()), sense.getFrequency());
+        if (senses.size == 0) return;
+
+        final StringBuilder text = senses.text;
+        text.setLength(0);
+        for (int i = 0; i < senses.size; i++) {
+            if (i > 0) text.append(',');
+            text.append(senses.lemmas[i]).append(':').append(senses.frequencies[i]);
+        }
+        csv.printRecord(synsetID, text);
+
+        if (index != null) index.add(synsetID, senses.lemmas, senses.frequencies, senses.size);
+    }
+
+    /**
+     * Replace the underscores in the lemma with spaces. The lemma itself is returned if it has no underscores.
+     *
+     * @param lemma the lemma.
+     * @return the normalized lemma.
+     */
+    private static String normalize(String lemma) {
+        return lemma.replace('_', ' ');
+    }
+
+    /**
+     * The thread-local buffers of the lemmas of a synset.
+     */
+    private static final class Senses {
+        private String[] lemmas = new String[16];
+        private int[] frequencies = new int[16];
+        private int size;
+        private final StringBuilder text = new StringBuilder(256);
+
+        private void clear() {
+            Arrays.fill(lemmas, 0, size, null);
+            size = 0;
+        }
+
+        /**
+         * Insert the lemma keeping the buffers sorted, unless it is already present ignoring the case.
+         * The synsets have few senses, so the insertion sort is the fastest option.
+         */
+        private void add(String lemma, int frequency) {
+            int i = size;
+            while (i > 0) {
+                final int order = String.CASE_INSENSITIVE_ORDER.compare(lemmas[i - 1], lemma);
+                if (order == 0) return;
+                if (order < 0) break;
+                i--;
+            }
+            if (size == lemmas.length) {
+                lemmas = Arrays.copyOf(lemmas, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            System.arraycopy(lemmas, i, lemmas, i + 1, size - i);
+            System.arraycopy(frequencies, i, frequencies, i + 1, size - i);
+            lemmas[i] = lemma;
+            frequencies[i] = frequency;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import de.tudarmstadt.lt.babelnet.extract.metrics.Metrics;
+import it.uniroma1.lcl.babelnet.BabelNet;
+import it.uniroma1.lcl.babelnet.BabelSynset;
+import it.uniroma1.lcl.babelnet.BabelSynsetID;
+import it.uniroma1.lcl.babelnet.InvalidBabelSynsetIDException;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+
+/**
+ * The stage turns a synset into the output records. The stages are thread-safe, so a single instance
+ * is shared by all the worker threads, and the synset loaded once can be passed to several stages.
+ *
+ * @author Dmitry Ustalov
+ */
+@FunctionalInterface
+public interface Stage {
+    /**
+     * Print the records of the given synset, if any.
+     *
+     * @param synsetID the synset ID.
+     * @param synset   the synset, or null if the stage does not need it.
+     * @param csv      the CSV printer.
+     * @throws IOException when an I/O error has occurred.
+     */
+    void print(String synsetID, BabelSynset synset, CSVPrinter csv) throws IOException;
+
+    /**
+     * Load the synset from BabelNet.
+     *
+     * @param babelnet the BabelNet instance.
+     * @param synsetID the synset ID.
+     * @return the synset, or null if it is not present.
+     * @throws IOException when an I/O error has occurred or the synset ID is malformed.
+     */
+    static BabelSynset load(BabelNet babelnet, String synsetID) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return babelnet.getSynset(new BabelSynsetID(synsetID));
+        } catch (final InvalidBabelSynsetIDException ex) {
+            throw new IOException(ex);
+        } finally {
+            Metrics.getInstance().record(Metrics.Call.GET_SYNSET, System.nanoTime() - start);
+        }
+    }
+}
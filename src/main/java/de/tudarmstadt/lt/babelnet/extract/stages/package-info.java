@@ -0,0 +1,4 @@
+/**
+ * Per-synset processing stages shared by the actions.
+ */
+package de.tudarmstadt.lt.babelnet.extract.stages;
@@ -0,0 +1,108 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.data.Shard;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * The difference of the synset lists selects the added synsets, and the merged output consists of the previous
+ * records of the remaining synsets followed by the records of the added ones.
+ *
+ * @author Dmitry Ustalov
+ */
+public class IncrementTest {
+    private static final Logger logger = Logger.getLogger(IncrementTest.class.getName());
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String name, String... lines) throws IOException {
+        final File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static ExtractionOptions previous(String previousSynsetsFilename, String previousFilename) {
+        return new ExtractionOptions.Builder().setMemoryBudget(1024).setPrevious(previousSynsetsFilename, previousFilename).build();
+    }
+
+    private static List<String> read(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        final File previousSynsets = write("synsets.old.txt", "bn:3", "bn:1", "bn:2", "bn:1");
+        final File synsets = write("synsets.txt", "bn:4", "bn:2", "bn:5", "bn:3");
+        final File previous = write("senses.old.txt", "bn:1\ta:1", "bn:2\tb:2", "", "bn:3\tc:3", "bn:1\ta:1");
+        final File output = new File(folder.getRoot(), "senses.txt");
+
+        final Increment increment = Increment.open(previous(previousSynsets.getPath(), previous.getPath()), synsets.getPath(), output.getPath(), logger);
+        assertTrue(increment.isPartial());
+        assertEquals(2, increment.getAdded());
+        assertEquals(1, increment.getRemoved());
+        assertEquals(2, increment.getUnchanged());
+        assertEquals(2, increment.size());
+        assertEquals(output.getPath() + ".added", increment.getOutputFilename());
+
+        final List<String> remaining = new ArrayList<>();
+        increment.remaining(read(synsets).stream(), Shard.ALL, null).forEachRemaining(remaining::add);
+        assertEquals(Arrays.asList("bn:4", "bn:5"), remaining);
+
+        write("senses.txt.added", "bn:4\td:4", "bn:5\te:5");
+        increment.finish(false);
+        assertEquals(Arrays.asList("bn:2\tb:2", "bn:3\tc:3", "bn:4\td:4", "bn:5\te:5"), read(output));
+        assertFalse(new File(increment.getOutputFilename()).exists());
+    }
+
+    @Test
+    public void testFull() throws IOException {
+        final File synsets = write("synsets.txt", "bn:1", "bn:2", "bn:3");
+        final File output = new File(folder.getRoot(), "senses.txt");
+        final Increment increment = Increment.open(previous(null, null), synsets.getPath(), output.getPath(), logger);
+        assertFalse(increment.isPartial());
+        assertEquals(3, increment.size());
+        assertEquals(output.getPath(), increment.getOutputFilename());
+        final List<String> remaining = new ArrayList<>();
+        increment.remaining(read(synsets).stream(), Shard.ALL, null).forEachRemaining(remaining::add);
+        assertEquals(read(synsets), remaining);
+        increment.finish(false);
+        assertFalse(output.exists());
+    }
+
+    @Test
+    public void testCheck() throws IOException {
+        Increment.check(previous(null, null), "senses.txt");
+        Increment.check(previous("synsets.old.txt", "senses.old.txt"), "senses.txt");
+        for (final String[] files : new String[][]{{"synsets.old.txt", null}, {null, "senses.old.txt"}}) {
+            try {
+                Increment.check(previous(files[0], files[1]), "senses.txt");
+                fail();
+            } catch (final IllegalArgumentException ex) {
+                assertTrue(ex.getMessage().contains("Both"));
+            }
+        }
+
+        final File output = write("senses.txt", "bn:1\ta:1");
+        for (final String previous : new String[]{output.getPath(), folder.getRoot() + "/./senses.txt", "senses.txt"}) {
+            final String filename = previous.equals("senses.txt") ? "./senses.txt" : output.getPath();
+            try {
+                Increment.check(previous("synsets.old.txt", previous), filename);
+                fail(previous);
+            } catch (final IllegalArgumentException ex) {
+                assertTrue(ex.getMessage().contains("differ"));
+            }
+        }
+        assertEquals(Collections.singletonList("bn:1\ta:1"), read(output));
+    }
+}
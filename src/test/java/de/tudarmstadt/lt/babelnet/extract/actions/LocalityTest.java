@@ -0,0 +1,118 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.data.SynsetIDs;
+import de.tudarmstadt.lt.babelnet.extract.io.ExternalSorter;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The synsets are sorted by their offsets, and the tagged records written in the sorted order are restored
+ * to the input order, also when the run has been resumed partway through.
+ *
+ * @author Dmitry Ustalov
+ */
+public class LocalityTest {
+    private static List<String> synsets(int count, long seed) {
+        final List<String> synsets = new ArrayList<>();
+        for (int i = 0; i < count; i++) synsets.add(String.format("bn:%08dn", i * 37));
+        Collections.shuffle(synsets, new Random(seed));
+        return synsets;
+    }
+
+    @Test
+    public void testSort() throws IOException {
+        final List<String> synsets = synsets(2000, 1);
+        try (final ExternalSorter sorter = Locality.sort(synsets.iterator(), synsetID -> false, 4096)) {
+            assertTrue(sorter.getRuns() > 1);
+            long previous = Long.MIN_VALUE;
+            int count = 0;
+            for (final Iterator<String> it = sorter.sorted(false); it.hasNext(); count++) {
+                final String line = it.next();
+                final String synsetID = Locality.getSynsetID(line);
+                assertEquals(synsetID, synsets.get((int) Locality.getIndex(line)));
+                assertTrue(SynsetIDs.encode(synsetID) > previous);
+                previous = SynsetIDs.encode(synsetID);
+            }
+            assertEquals(synsets.size(), count);
+        }
+    }
+
+    private static String expected(List<String> synsets) throws IOException {
+        final StringBuilder expected = new StringBuilder();
+        try (final CSVPrinter csv = CSVFormat.MYSQL.print(expected)) {
+            for (final String synsetID : synsets) {
+                csv.printRecord(synsetID, "first");
+                csv.printRecord(synsetID, "second\tvalue");
+            }
+        }
+        return expected.toString();
+    }
+
+    /**
+     * Write the tagged records of the synsets in the sorted order like the locality mode does.
+     *
+     * @param synsets   the synset IDs in the input order.
+     * @param completed the synsets completed in the previous run, which are extended with the processed ones.
+     * @param limit     the number of synsets to process before the interruption.
+     * @param tagged    the tagged records.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private static void process(List<String> synsets, Set<String> completed, int limit, StringBuilder tagged) throws IOException {
+        final Set<String> previous = new HashSet<>(completed);
+        try (final ExternalSorter sorter = Locality.sort(synsets.iterator(), previous::contains, 4096);
+             final CSVPrinter csv = CSVFormat.MYSQL.print(tagged)) {
+            final Iterator<String> it = sorter.sorted(false);
+            for (int i = 0; i < limit && it.hasNext(); i++) {
+                final String line = it.next(), synsetID = Locality.getSynsetID(line);
+                Locality.tag(Locality.getIndex(line), printer -> {
+                    printer.printRecord(synsetID, "first");
+                    printer.printRecord(synsetID, "second\tvalue");
+                }).print(csv);
+                completed.add(synsetID);
+            }
+        }
+    }
+
+    private static String restore(StringBuilder tagged) throws IOException {
+        final Path taggedFile = Files.createTempFile("locality", ".tagged"), file = Files.createTempFile("locality", ".tsv");
+        try {
+            Files.write(taggedFile, tagged.toString().getBytes(StandardCharsets.UTF_8));
+            Locality.restore(taggedFile.toString(), file.toString(), 4096);
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } finally {
+            Files.delete(taggedFile);
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRestore() throws IOException {
+        final List<String> synsets = synsets(2000, 2);
+        final StringBuilder tagged = new StringBuilder();
+        process(synsets, new HashSet<>(), Integer.MAX_VALUE, tagged);
+        assertEquals(expected(synsets), restore(tagged));
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        // The resumed run appends its records to the ones of the interrupted run, which keep their tags.
+        final List<String> synsets = synsets(2000, 3);
+        final Set<String> completed = new HashSet<>();
+        final StringBuilder tagged = new StringBuilder();
+        process(synsets, completed, 700, tagged);
+        assertEquals(700, completed.size());
+        process(synsets, completed, Integer.MAX_VALUE, tagged);
+        assertEquals(synsets.size(), completed.size());
+        assertEquals(expected(synsets), restore(tagged));
+    }
+}
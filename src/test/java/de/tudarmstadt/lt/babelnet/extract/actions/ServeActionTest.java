@@ -0,0 +1,148 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.graph.Budget;
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+import de.tudarmstadt.lt.babelnet.extract.graph.TaxonomyFixture;
+import de.tudarmstadt.lt.babelnet.extract.stages.NeighboursStage;
+import it.uniroma1.lcl.babelnet.data.BabelPOS;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The server answers the neighbour queries over the taxonomy within the walk budget and reports the malformed
+ * queries, including the ones deeper than the configured depth, by the status.
+ *
+ * @author Dmitry Ustalov
+ */
+public class ServeActionTest {
+    private static final Budget BUDGET = Budget.of(100, 0, 0);
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static TaxonomyFixture fixture;
+    private static Taxonomy taxonomy;
+    private static ServeAction action;
+    private static Thread server;
+    private static int port;
+
+    @BeforeClass
+    public static void setUp() throws IOException, InterruptedException {
+        fixture = new TaxonomyFixture(500, 5, 11);
+        taxonomy = fixture.write(folder.newFile("taxonomy.bin"));
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        action = new ServeAction(null, taxonomy, Language.EN, BabelPOS.NOUN, 3, BUDGET, port, 1000, Logger.getLogger("test"));
+        server = new Thread(() -> {
+            try {
+                action.run();
+            } catch (final IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        server.start();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            if (post("/status", "").status == 200) return;
+            Thread.sleep(50);
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws InterruptedException {
+        action.stop();
+        server.join();
+    }
+
+    private static Response post(String path, String body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (final OutputStream stream = connection.getOutputStream()) {
+                stream.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            final int status = connection.getResponseCode();
+            final InputStream input = (status < 400) ? connection.getInputStream() : connection.getErrorStream();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) output.write(buffer, 0, read);
+            return new Response(status, output.toString("UTF-8"));
+        } catch (final IOException ex) {
+            return new Response(-1, ex.toString());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testNeighbours() throws IOException {
+        final List<String> synsets = fixture.getSynsets().subList(0, 200);
+        final StringWriter expected = new StringWriter();
+        try (final CSVPrinter csv = new CSVPrinter(expected, CSVFormat.MYSQL)) {
+            final NeighboursStage stage = new NeighboursStage(taxonomy, 3, BUDGET);
+            for (final String synsetID : synsets) stage.print(synsetID, null, csv);
+        }
+        final Response response = post("/neighbours?depth=3", String.join("\n", synsets) + "\n\n");
+        assertEquals(200, response.status);
+        assertTrue(expected.toString().contains("\ttruncated\n"));
+        assertEquals(expected.toString(), response.body);
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        final Response response = post("/neighbours", fixture.getSynsets().get(0) + "\nnot a synset\n");
+        assertEquals(400, response.status);
+        assertTrue(response.body, response.body.contains("line 2"));
+        assertEquals(400, post("/neighbours?depth=0", fixture.getSynsets().get(0)).status);
+        assertEquals(400, post("/neighbours?depth=4", fixture.getSynsets().get(0)).status);
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        // There is no BabelNet instance, so loading the synsets fails during processing.
+        final Response response = post("/senses", String.join("\n", fixture.getSynsets().subList(0, 100)));
+        assertEquals(500, response.status);
+        assertTrue(response.body, response.body.startsWith("The query has failed"));
+    }
+
+    @Test
+    public void testMethod() throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/neighbours").openConnection();
+        try {
+            assertEquals(405, connection.getResponseCode());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * The status and the body of the response.
+     */
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
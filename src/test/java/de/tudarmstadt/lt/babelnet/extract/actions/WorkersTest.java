@@ -0,0 +1,82 @@
+package de.tudarmstadt.lt.babelnet.extract.actions;
+
+import de.tudarmstadt.lt.babelnet.extract.io.RecordWriter;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * The parallel loops keep the indices of the items and fail as a whole.
+ *
+ * @author Dmitry Ustalov
+ */
+public class WorkersTest {
+    @BeforeClass
+    public static void setUp() {
+        Workers.configure(Workers.Kind.FIXED, 4);
+    }
+
+    @Test
+    public void testOrderedOutput() throws IOException {
+        final StringWriter output = new StringWriter();
+        try (final RecordWriter writer = new RecordWriter(output, 8)) {
+            Workers.forEach(IntStream.range(0, 5000).iterator(), 16, (item, index) -> {
+                try {
+                    assertEquals(item.longValue(), index);
+                    writer.write(index, csv -> csv.printRecord(item));
+                } catch (final IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }, writer::abort);
+        }
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) expected.append(i).append('\n');
+        assertEquals(expected.toString(), output.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailureOutsidePrinter() throws IOException {
+        final RecordWriter writer = new RecordWriter(new StringWriter(), 2);
+        try {
+            Workers.forEach(IntStream.range(0, 5000).iterator(), 1, (item, index) -> {
+                if (item == 100) {
+                    // The other threads go ahead and wait for this item in the writer.
+                    LockSupport.parkNanos(200_000_000L);
+                    throw new IllegalStateException("failed before writing");
+                }
+                try {
+                    writer.write(index, csv -> csv.printRecord(item));
+                } catch (final IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }, writer::abort);
+            fail();
+        } catch (final IllegalStateException ex) {
+            assertEquals("failed before writing", ex.getMessage());
+        }
+        try {
+            writer.close();
+            fail();
+        } catch (final IOException ex) {
+            assertEquals("failed before writing", ex.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testList() {
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) items.add(i);
+        final long[] seen = new long[items.size()];
+        Workers.forEach(items, (item, index) -> seen[item] = index + 1);
+        for (int i = 0; i < seen.length; i++) assertEquals(i + 1, seen[i]);
+    }
+}
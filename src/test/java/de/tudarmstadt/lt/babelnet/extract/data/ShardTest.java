@@ -0,0 +1,70 @@
+package de.tudarmstadt.lt.babelnet.extract.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The shards partition the synsets by the stable hash code of their IDs.
+ *
+ * @author Dmitry Ustalov
+ */
+public class ShardTest {
+    @Test
+    public void testParse() {
+        final Shard shard = Shard.parse(" 2 / 4 ");
+        assertEquals(2, shard.getIndex());
+        assertEquals(4, shard.getCount());
+        assertEquals("2/4", shard.toString());
+    }
+
+    @Test
+    public void testMalformed() {
+        for (final String spec : new String[]{"", "1", "a/4", "1/b", "4/4", "-1/4", "0/0"}) {
+            try {
+                Shard.parse(spec);
+                fail(spec);
+            } catch (final IllegalArgumentException ex) {
+                assertNotNull(ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testPartition() {
+        final int count = 8, synsets = 80000;
+        final Shard[] shards = new Shard[count];
+        for (int i = 0; i < count; i++) shards[i] = Shard.parse(i + "/" + count);
+        final int[] sizes = new int[count];
+        for (int offset = 0; offset < synsets; offset++) {
+            final String synsetID = String.format("bn:%08dn", offset);
+            assertTrue(Shard.ALL.contains(synsetID));
+            int owners = 0;
+            for (int i = 0; i < count; i++) {
+                if (shards[i].contains(synsetID)) {
+                    owners++;
+                    sizes[i]++;
+                }
+            }
+            assertEquals(synsetID, 1, owners);
+        }
+        for (final int size : sizes) assertEquals(synsets / count, size, synsets / count / 10);
+    }
+
+    @Test
+    public void testStableHash() {
+        // The FNV-1a test vectors, so the partitioning never depends on String.hashCode() or the JVM.
+        assertEquals(0xcbf29ce484222325L, SynsetIDs.hash(""));
+        assertEquals(0xaf63dc4c8601ec8cL, SynsetIDs.hash("a"));
+        assertEquals(0x85944171f73967e8L, SynsetIDs.hash("foobar"));
+    }
+
+    @Test
+    public void testEncode() {
+        assertEquals(1L << 2, SynsetIDs.encode("bn:00000001n"));
+        assertEquals(1L << 2 | 1, SynsetIDs.encode("bn:00000001v"));
+        assertTrue(SynsetIDs.encode("bn:00000001n") < SynsetIDs.encode("bn:00000002n"));
+        assertTrue(SynsetIDs.encode("bn:0000000xn") < 0);
+        assertTrue(SynsetIDs.encode("wn:00000001n") < 0);
+    }
+}
@@ -0,0 +1,75 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The all-sources ego networks are compared with the ones of the original walk.
+ *
+ * @author Dmitry Ustalov
+ */
+public class NeighbourhoodsTest {
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static TaxonomyFixture fixture;
+    private static Taxonomy taxonomy;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        fixture = new TaxonomyFixture(2000, 10, 3);
+        taxonomy = fixture.write(folder.newFile("taxonomy.bin"));
+    }
+
+    private static Neighbourhoods prepare(int depth) {
+        final Neighbourhoods neighbourhoods = new Neighbourhoods(taxonomy, depth);
+        // Every other synset is a source, so some of the balls are never needed.
+        for (int i = 0; i < fixture.getSynsets().size(); i += 2) {
+            neighbourhoods.addSource(taxonomy.lookup(fixture.getSynsets().get(i)));
+        }
+        while (!neighbourhoods.isPrepared()) {
+            for (final int node : neighbourhoods.begin()) neighbourhoods.expand(node);
+            neighbourhoods.finish();
+        }
+        assertEquals(Math.max(1, depth - 1), neighbourhoods.getRadius());
+        return neighbourhoods;
+    }
+
+    @Test
+    public void testOriginalEgoNetworks() throws IOException {
+        for (int depth = 1; depth <= 4; depth++) {
+            final Traversal traversal = prepare(depth).newTraversal();
+            for (int i = 0; i < fixture.getSynsets().size(); i += 2) {
+                final String synsetID = fixture.getSynsets().get(i);
+                final int size = traversal.walk(taxonomy.lookup(synsetID));
+                assertEquals(synsetID + " at depth " + depth, fixture.walk(synsetID, depth), WalkerTest.neighbours(taxonomy, traversal));
+                assertEquals(traversal.size(), size);
+            }
+        }
+    }
+
+    @Test
+    public void testAbsent() throws IOException {
+        final Traversal traversal = prepare(2).newTraversal();
+        assertEquals(0, traversal.walk(-1));
+        assertEquals(0, traversal.size());
+    }
+
+    @Test
+    public void testTooDeep() {
+        try {
+            new Neighbourhoods(taxonomy, 16);
+            fail();
+        } catch (final IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().contains("depth"));
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * The small random taxonomy with a few hubs, in which every node has one or two hypernyms, and every hypernym
+ * edge has the reverse hyponym edge. The ego networks can be extracted as the original implementation walked
+ * BabelNet, i.e., using the hash map keyed by the synset IDs, so the new implementations can be compared with it.
+ *
+ * @author Dmitry Ustalov
+ */
+public final class TaxonomyFixture {
+    private final List<String> synsets = new ArrayList<>();
+    private final Map<String, List<String>> targets = new HashMap<>();
+    private final Map<String, List<Boolean>> hypernyms = new HashMap<>();
+
+    /**
+     * Generate the taxonomy.
+     *
+     * @param nodes the number of nodes.
+     * @param hubs  the number of the first nodes preferred as the hypernyms.
+     * @param seed  the random seed.
+     */
+    public TaxonomyFixture(int nodes, int hubs, long seed) {
+        final Random random = new Random(seed);
+        final List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) numbers.add(i);
+        Collections.shuffle(numbers, random);
+        for (int i = 0; i < nodes; i++) {
+            final String synsetID = String.format("bn:%08dn", numbers.get(i));
+            synsets.add(synsetID);
+            targets.put(synsetID, new ArrayList<>());
+            hypernyms.put(synsetID, new ArrayList<>());
+        }
+        for (int i = 1; i < nodes; i++) {
+            final int parents = 1 + random.nextInt(2);
+            for (int j = 0; j < parents; j++) {
+                final int parent = random.nextBoolean() ? random.nextInt(Math.min(i, hubs)) : random.nextInt(i);
+                add(synsets.get(i), synsets.get(parent), true);
+                add(synsets.get(parent), synsets.get(i), false);
+            }
+        }
+    }
+
+    private void add(String source, String target, boolean hypernym) {
+        targets.get(source).add(target);
+        hypernyms.get(source).add(hypernym);
+    }
+
+    /**
+     * Get the synset IDs.
+     *
+     * @return the synset IDs.
+     */
+    public List<String> getSynsets() {
+        return synsets;
+    }
+
+    /**
+     * Write the taxonomy snapshot and open it.
+     *
+     * @param file the file to write.
+     * @return the taxonomy.
+     * @throws IOException when an I/O error has occurred.
+     */
+    public Taxonomy write(File file) throws IOException {
+        final Taxonomy.Builder builder = new Taxonomy.Builder();
+        for (final String synsetID : synsets) {
+            builder.addNode(synsetID);
+            for (int i = 0; i < targets.get(synsetID).size(); i++) {
+                builder.addEdge(synsetID, targets.get(synsetID).get(i), hypernyms.get(synsetID).get(i));
+            }
+        }
+        builder.write(file.getPath());
+        return Taxonomy.open(file.getPath());
+    }
+
+    /**
+     * Walk the graph as the original implementation did.
+     *
+     * @param sourceID the initial node.
+     * @param depth    the graph depth.
+     * @return the mapping between the neighbours and their distances in the original order.
+     */
+    public Map<String, Integer> walk(String sourceID, int depth) {
+        final Map<String, Integer> neighbours = new HashMap<>();
+        neighbours.put(sourceID, 0);
+
+        final Queue<String> queue = new ArrayDeque<>();
+        queue.add(sourceID);
+
+        while (!queue.isEmpty()) {
+            final String synsetID = queue.remove();
+            final int step = neighbours.get(synsetID);
+            for (int i = 0; i < targets.get(synsetID).size(); i++) {
+                final String target = targets.get(synsetID).get(i);
+                if (!neighbours.containsKey(target) && Math.abs(step) < depth) {
+                    final int level = (step == 0) ?
+                            (hypernyms.get(synsetID).get(i) ? +1 : -1) :
+                            Integer.signum(step) * (Math.abs(step) + 1);
+                    neighbours.put(target, level);
+                    queue.add(target);
+                }
+            }
+        }
+
+        neighbours.remove(sourceID);
+        return neighbours;
+    }
+
+    /**
+     * Format the neighbours as the original implementation did.
+     *
+     * @param neighbours the neighbours.
+     * @return the neighbours field of the record.
+     */
+    public static String format(Map<String, Integer> neighbours) {
+        return neighbours.entrySet().stream().map(entry -> entry.getKey() + ':' + entry.getValue()).collect(joining(","));
+    }
+}
@@ -0,0 +1,191 @@
+package de.tudarmstadt.lt.babelnet.extract.graph;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * The walker is compared with the original walk, also when it is reused after the large ego networks, and the walks
+ * limited by the budget are compared with the unlimited ones. The walk running out of time is truncated only
+ * if it skips a node.
+ *
+ * @author Dmitry Ustalov
+ */
+public class WalkerTest {
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static TaxonomyFixture fixture;
+    private static Taxonomy taxonomy;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        fixture = new TaxonomyFixture(2000, 10, 7);
+        taxonomy = fixture.write(folder.newFile("taxonomy.bin"));
+    }
+
+    static Map<String, Integer> neighbours(Graph graph, Traversal traversal) {
+        final Map<String, Integer> neighbours = new HashMap<>();
+        for (int i = 0; i < traversal.size(); i++) {
+            neighbours.put(graph.getId(traversal.getNeighbour(i)), traversal.getLevel(i));
+        }
+        return neighbours;
+    }
+
+    @Test
+    public void testReuse() throws IOException {
+        final Walker walker = new Walker(taxonomy, 3);
+        for (final String synsetID : fixture.getSynsets()) {
+            final int size = walker.walk(taxonomy.lookup(synsetID));
+            assertEquals(synsetID, fixture.walk(synsetID, 3), neighbours(taxonomy, walker));
+            assertEquals(synsetID, walker.size(), size);
+        }
+    }
+
+    @Test
+    public void testDiscoveryOrder() throws IOException {
+        final Walker walker = new Walker(taxonomy, 2);
+        final String synsetID = fixture.getSynsets().get(0);
+        walker.walk(taxonomy.lookup(synsetID));
+        for (int i = 1; i < walker.size(); i++) {
+            assertEquals(true, Math.abs(walker.getLevel(i - 1)) <= Math.abs(walker.getLevel(i)));
+        }
+    }
+
+    @Test
+    public void testAbsent() throws IOException {
+        final Walker walker = new Walker(taxonomy, 2);
+        assertEquals(0, walker.walk(-1));
+        assertEquals(0, walker.size());
+    }
+
+    @Test
+    public void testMaxVisited() throws IOException {
+        // The truncated walk contains the first neighbours of the complete one in the same order.
+        final Walker walker = new Walker(taxonomy, 3), limited = new Walker(taxonomy, 3, Budget.of(50, 0, 0));
+        int truncated = 0;
+        for (final String synsetID : fixture.getSynsets()) {
+            final int size = walker.walk(taxonomy.lookup(synsetID));
+            assertEquals(Math.min(size, 50), limited.walk(taxonomy.lookup(synsetID)));
+            assertEquals(size > 50, limited.isTruncated());
+            for (int i = 0; i < limited.size(); i++) {
+                assertEquals(walker.getNeighbour(i), limited.getNeighbour(i));
+                assertEquals(walker.getLevel(i), limited.getLevel(i));
+            }
+            if (limited.isTruncated()) truncated++;
+        }
+        assertTrue(truncated > 0);
+    }
+
+    @Test
+    public void testMaxFanOut() throws IOException {
+        final int maxFanOut = 3;
+        final Walker walker = new Walker(taxonomy, 3, Budget.of(0, maxFanOut, 0));
+        int truncated = 0;
+        for (final String synsetID : fixture.getSynsets()) {
+            final boolean[] expectedTruncated = new boolean[1];
+            final Map<String, Integer> expected = walk(synsetID, 3, maxFanOut, expectedTruncated);
+            walker.walk(taxonomy.lookup(synsetID));
+            assertEquals(synsetID, expected, neighbours(taxonomy, walker));
+            assertEquals(synsetID, expectedTruncated[0], walker.isTruncated());
+            if (walker.isTruncated()) truncated++;
+        }
+        assertTrue(truncated > 0 && truncated < fixture.getSynsets().size());
+    }
+
+    @Test
+    public void testMaxTime() throws IOException {
+        // The nodes other than the source are slow to expand, so the time is over after expanding the node 1.
+        final int[][] adjacency = {{1, 2}, {0, 2}, {0, 1}, {2}};
+        final Graph graph = new Graph() {
+            @Override
+            public int lookup(String synsetID) {
+                return Integer.parseInt(synsetID);
+            }
+
+            @Override
+            public String getId(int node) {
+                return Integer.toString(node);
+            }
+
+            @Override
+            public int getEdges(int node, int[] buffer) {
+                if (node > 0) {
+                    try {
+                        Thread.sleep(20);
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                for (int i = 0; i < adjacency[node].length && i < buffer.length; i++) {
+                    buffer[i] = Graph.edge(adjacency[node][i], false);
+                }
+                return adjacency[node].length;
+            }
+        };
+        final Walker walker = new Walker(graph, 2, Budget.of(0, 0, 10));
+
+        assertEquals(2, walker.walk(0));
+        assertFalse(walker.isTruncated());
+
+        // Now the node 2 leads to the new node 3, which is skipped.
+        adjacency[2] = new int[]{0, 1, 3};
+        assertEquals(2, walker.walk(0));
+        assertTrue(walker.isTruncated());
+    }
+
+    @Test
+    public void testUnlimited() throws IOException {
+        final Walker walker = new Walker(taxonomy, 3, Budget.of(0, 0, 0));
+        for (final String synsetID : fixture.getSynsets().subList(0, 100)) {
+            walker.walk(taxonomy.lookup(synsetID));
+            assertFalse(walker.isTruncated());
+            assertEquals(fixture.walk(synsetID, 3), neighbours(taxonomy, walker));
+        }
+        assertTrue(Budget.of(0, 0, 0).isUnlimited());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeBudget() {
+        Budget.of(-1, 0, 0);
+    }
+
+    /**
+     * Walk following at most the given number of edges to the unvisited nodes from every node.
+     */
+    private static Map<String, Integer> walk(String synsetID, int depth, int maxFanOut, boolean[] truncated) throws IOException {
+        final int source = taxonomy.lookup(synsetID);
+        final Map<Integer, Integer> levels = new LinkedHashMap<>();
+        final Deque<Integer> queue = new ArrayDeque<>();
+        levels.put(source, 0);
+        queue.add(source);
+        int[] edges = new int[4096];
+        while (!queue.isEmpty()) {
+            final int node = queue.poll(), step = levels.get(node);
+            if (Math.abs(step) >= depth) continue;
+            final int degree = taxonomy.getEdges(node, edges);
+            assertTrue(degree <= edges.length);
+            int followed = 0;
+            for (int i = 0; i < degree; i++) {
+                final int target = Graph.target(edges[i]);
+                if (levels.containsKey(target)) continue;
+                if (followed++ >= maxFanOut) {
+                    truncated[0] = true;
+                    break;
+                }
+                levels.put(target, (step == 0) ? (Graph.isHypernym(edges[i]) ? +1 : -1) : Integer.signum(step) * (Math.abs(step) + 1));
+                queue.add(target);
+            }
+        }
+        levels.remove(source);
+        final Map<String, Integer> neighbours = new HashMap<>();
+        levels.forEach((node, level) -> neighbours.put(taxonomy.getId(node), level));
+        return neighbours;
+    }
+}
@@ -0,0 +1,142 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import de.tudarmstadt.lt.babelnet.extract.data.Cluster;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * The clusters read by the parallel reader are compared with the ones read by the original implementation,
+ * which parsed the file with Commons CSV and split the senses with {@code String.split(", ")}.
+ *
+ * @author Dmitry Ustalov
+ */
+public class ClusterReaderTest {
+    private static final String[] WORDS = {"python#1", "Python#2", "snake", "java#0", "a, b", "tab\there", "line\nbreak",
+            "back\\slash", "cr\r", "#label", "", "über#3", new String(new char[2000]).replace('\0', 'x') + "#4"};
+    private static final int COUNT = 12000;
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static File file;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        // The file is larger than the chunk, so the records span the chunk boundaries.
+        file = folder.newFile("clusters.csv");
+        final Random random = new Random(1);
+        try (final Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+             final CSVPrinter csv = CSVFormat.MYSQL.print(writer)) {
+            for (int id = 0; id < COUNT; id++) {
+                final StringBuilder senses = new StringBuilder();
+                final int size = random.nextInt(20) + 1;
+                for (int i = 0; i < size; i++) senses.append(WORDS[random.nextInt(WORDS.length)]).append(", ");
+                csv.printRecord(id, size, senses);
+            }
+        }
+        assertTrue(file.length() > 1 << 24);
+    }
+
+    private static void assertOriginal(ClusterReader reader) throws IOException {
+        try (final Reader input = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+             final CSVParser parser = CSVFormat.MYSQL.parse(input);
+             final ClusterReader clusters = reader) {
+            for (final CSVRecord row : parser) {
+                final List<String> senses = Arrays.asList(row.get(2).substring(0, row.get(2).length() - 2).split(", "));
+                final List<String> lemmas = new ArrayList<>();
+                for (final String sense : senses) lemmas.add(sense.split("#")[0].toLowerCase());
+                assertTrue(clusters.hasNext());
+                final Cluster cluster = clusters.next();
+                assertEquals(Integer.valueOf(row.get(0)), cluster.getId());
+                assertEquals(senses, cluster.getSenses());
+                assertEquals(lemmas, cluster.getLemmas());
+            }
+            assertFalse(clusters.hasNext());
+        }
+    }
+
+    private static int count(ClusterReader reader) throws IOException {
+        int count = 0;
+        try (final ClusterReader clusters = reader) {
+            for (; clusters.hasNext(); clusters.next()) count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testMapped() throws IOException {
+        assertOriginal(ClusterReader.open(file.getPath()));
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        assertOriginal(ClusterReader.open(new FileInputStream(file)));
+    }
+
+    @Test(timeout = 60000)
+    public void testBusyCommonPool() throws Exception {
+        // The common pool workers wait for the clusters, so the chunks must not be parsed on that pool.
+        final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        final CountDownLatch started = new CountDownLatch(parallelism), done = new CountDownLatch(1);
+        for (int i = 0; i < parallelism; i++) {
+            ForkJoinPool.commonPool().execute(() -> {
+                started.countDown();
+                try {
+                    done.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            started.await();
+            assertEquals(COUNT, count(ClusterReader.open(file.getPath())));
+        } finally {
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        for (final String text : new String[]{"a, ", "a, b, ", "a, , ", ", , ", "a, b, , ", "a,b, ", "a, , b, ", ", "}) {
+            final List<String> expected = Arrays.asList(text.substring(0, text.length() - 2).split(", "));
+            assertEquals(text, expected, ClusterReader.split(text));
+        }
+    }
+
+    @Test
+    public void testUnescape() {
+        assertEquals("a\tb\nc\rd\\e\bf\fg'h", ClusterReader.unescape("a\\tb\\nc\\rd\\\\e\\bf\\fg\\'h"));
+        assertEquals("plain", ClusterReader.unescape("plain"));
+        assertEquals("trailing\\", ClusterReader.unescape("trailing\\"));
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        final File malformed = folder.newFile("malformed.csv");
+        try (final Writer writer = new OutputStreamWriter(new FileOutputStream(malformed), StandardCharsets.UTF_8)) {
+            writer.write("1\t1\ta, \n2\n");
+        }
+        try (final ClusterReader reader = ClusterReader.open(malformed.getPath())) {
+            reader.next();
+            reader.next();
+            fail();
+        } catch (final UncheckedIOException ex) {
+            assertTrue(ex.getCause().getMessage().contains("Malformed"));
+        }
+    }
+}
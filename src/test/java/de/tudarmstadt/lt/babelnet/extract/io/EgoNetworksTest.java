@@ -0,0 +1,116 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * The ego networks are encoded from the text records and decoded back, including the truncation flag,
+ * and the files of the first version of the format are still readable.
+ *
+ * @author Dmitry Ustalov
+ */
+public class EgoNetworksTest {
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, Integer> neighbours(EgoNetworks.EgoNetwork network) {
+        final Map<String, Integer> neighbours = new TreeMap<>();
+        for (int i = 0; i < network.size(); i++) neighbours.put(network.getNeighbourId(i), network.getLevel(i));
+        return neighbours;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final Random random = new Random(1);
+        final List<String> sources = new ArrayList<>();
+        final List<Map<String, Integer>> expected = new ArrayList<>();
+        final List<Boolean> truncated = new ArrayList<>();
+        final File text = folder.newFile("neighbours.txt"), binary = folder.newFile("neighbours.bin");
+        try (final Writer writer = new OutputStreamWriter(new FileOutputStream(text), StandardCharsets.UTF_8);
+             final CSVPrinter csv = CSVFormat.MYSQL.print(writer)) {
+            for (int i = 0; i < 1000; i++) {
+                final String source = String.format("bn:%08dn", random.nextInt(5000));
+                final Map<String, Integer> levels = new TreeMap<>();
+                for (int j = random.nextInt(300) + 1; j > 0; j--) {
+                    levels.put(String.format("bn:%08dn", random.nextInt(5000)), (random.nextInt(7) - 3) * 100);
+                }
+                levels.remove(source);
+                if (levels.isEmpty()) continue;
+                final StringBuilder pairs = new StringBuilder();
+                levels.forEach((id, level) -> pairs.append((pairs.length() > 0) ? "," : "").append(id).append(':').append(level));
+                sources.add(source);
+                expected.add(levels);
+                truncated.add(random.nextInt(3) == 0);
+                if (truncated.get(truncated.size() - 1)) {
+                    csv.printRecord(source, pairs, EgoNetworks.TRUNCATED);
+                } else {
+                    csv.printRecord(source, pairs);
+                }
+            }
+        }
+        EgoNetworks.write(text.getPath(), binary.getPath());
+
+        final EgoNetworks networks = EgoNetworks.open(binary.getPath());
+        assertEquals(sources.size(), networks.size());
+        int i = 0;
+        for (final EgoNetworks.EgoNetwork network : networks) {
+            assertEquals(sources.get(i), network.getSynsetID());
+            assertEquals(expected.get(i), neighbours(network));
+            assertEquals(truncated.get(i), network.isTruncated());
+            for (int j = 1; j < network.size(); j++) assertTrue(network.getNeighbour(j - 1) < network.getNeighbour(j));
+            i++;
+        }
+        assertEquals(sources.size(), i);
+
+        // The first ego network of every source is found by the index.
+        for (int j = sources.size() - 1; j >= 0; j--) {
+            if (sources.indexOf(sources.get(j)) != j) continue;
+            final EgoNetworks.EgoNetwork network = networks.get(sources.get(j));
+            assertEquals(expected.get(j), neighbours(network));
+            assertEquals(truncated.get(j), network.isTruncated());
+        }
+        assertNull(networks.get("bn:99999999n"));
+        assertEquals(-1, networks.lookup("bn:99999999n"));
+    }
+
+    @Test
+    public void testVersion1() throws IOException {
+        // The nodes are bn:1, bn:2, and bn:3, and the ego networks are bn:3 -> {bn:1:1, bn:2:-1} and bn:1 -> {bn:3:2}.
+        final byte[] names = "bn:1bn:2bn:3".getBytes(StandardCharsets.UTF_8);
+        final byte[] records = {2, 2, 0, 2, 1, 1, 0, 1, 2, 4};
+        final ByteBuffer buffer = ByteBuffer.allocate(32 + 4 * 4 + names.length + 2 * 4 * 2 + records.length);
+        buffer.putInt(0x45474F4E).putInt(1).putInt(3).putInt(2).putLong(names.length).putLong(records.length);
+        buffer.putInt(0).putInt(4).putInt(8).putInt(12).put(names);
+        buffer.putInt(0).putInt(2).putInt(6).putInt(0).put(records);
+        final File file = folder.newFile("version1.bin");
+        Files.write(file.toPath(), buffer.array());
+
+        final EgoNetworks networks = EgoNetworks.open(file.getPath());
+        assertEquals(3, networks.getNodeCount());
+        final Iterator<EgoNetworks.EgoNetwork> it = networks.iterator();
+        final EgoNetworks.EgoNetwork first = it.next(), second = it.next();
+        assertFalse(it.hasNext());
+        assertEquals("bn:3", first.getSynsetID());
+        assertEquals(new TreeMap<String, Integer>() {{
+            put("bn:1", 1);
+            put("bn:2", -1);
+        }}, neighbours(first));
+        assertFalse(first.isTruncated());
+        assertEquals("bn:1", second.getSynsetID());
+        assertEquals(Collections.singletonMap("bn:3", 2), neighbours(second));
+        assertFalse(second.isTruncated());
+        assertEquals(Collections.singletonMap("bn:3", 2), neighbours(networks.get("bn:1")));
+        assertNull(networks.get("bn:2"));
+    }
+}
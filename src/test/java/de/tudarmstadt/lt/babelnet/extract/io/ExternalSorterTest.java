@@ -0,0 +1,95 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * The external sort is compared with the in-memory one with and without spilling.
+ *
+ * @author Dmitry Ustalov
+ */
+public class ExternalSorterTest {
+    private static final Comparator<String> KEYS = Comparator.comparing(line -> line.substring(0, line.indexOf('\t')));
+
+    private static List<String> lines(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) lines.add("key" + random.nextInt(count / 4) + '\t' + i);
+        return lines;
+    }
+
+    private static List<String> sort(List<String> lines, Comparator<String> comparator, long budget, boolean distinct) throws IOException {
+        try (final ExternalSorter sorter = new ExternalSorter(comparator, budget)) {
+            for (final String line : lines) sorter.add(line);
+            if (budget < 1024) assertTrue(sorter.getRuns() > 1);
+            final List<String> sorted = new ArrayList<>();
+            sorter.sorted(distinct).forEachRemaining(sorted::add);
+            return sorted;
+        }
+    }
+
+    @Test
+    public void testSpill() throws IOException {
+        final List<String> lines = lines(10000, 1), expected = new ArrayList<>(lines);
+        expected.sort(Comparator.naturalOrder());
+        assertEquals(expected, sort(lines, Comparator.naturalOrder(), Long.MAX_VALUE, false));
+        assertEquals(expected, sort(lines, Comparator.naturalOrder(), 1000, false));
+    }
+
+    @Test
+    public void testStability() throws IOException {
+        // The list sort is stable, so the lines having the same key keep the order of their addition.
+        final List<String> lines = lines(10000, 2), expected = new ArrayList<>(lines);
+        expected.sort(KEYS);
+        assertEquals(expected, sort(lines, KEYS, 1000, false));
+    }
+
+    @Test
+    public void testDistinct() throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) lines.add("bn:" + (i * 7919 % 1000));
+        final List<String> expected = new ArrayList<>(new TreeSet<>(lines));
+        assertEquals(expected, sort(lines, Comparator.naturalOrder(), 500, true));
+        assertEquals(expected, sort(lines, Comparator.naturalOrder(), Long.MAX_VALUE, true));
+    }
+
+    @Test
+    public void testCleanup() throws IOException {
+        final Path directory = Paths.get(System.getProperty("java.io.tmpdir"));
+        final Set<Path> before = runs(directory);
+        try (final ExternalSorter sorter = new ExternalSorter(Comparator.naturalOrder(), 100)) {
+            for (final String line : lines(1000, 3)) sorter.add(line);
+            assertTrue(sorter.getRuns() > 0);
+            final Iterator<String> sorted = sorter.sorted(false);
+            assertTrue(sorted.hasNext());
+        }
+        assertEquals(before, runs(directory));
+    }
+
+    private static Set<Path> runs(Path directory) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            final Set<Path> runs = new HashSet<>();
+            files.filter(path -> path.getFileName().toString().endsWith(".run")).forEach(runs::add);
+            return runs;
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        final List<Iterator<String>> sources = Arrays.asList(
+                Arrays.asList("a\t1", "c\t1").iterator(),
+                Collections.<String>emptyIterator(),
+                Arrays.asList("a\t2", "b\t2", "c\t2").iterator());
+        final List<String> merged = new ArrayList<>();
+        ExternalSorter.merge(sources, KEYS, false).forEachRemaining(merged::add);
+        assertEquals(Arrays.asList("a\t1", "a\t2", "b\t2", "c\t1", "c\t2"), merged);
+    }
+}
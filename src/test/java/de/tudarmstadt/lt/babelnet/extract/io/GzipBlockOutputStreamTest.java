@@ -0,0 +1,92 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * The data compressed in blocks are decompressed with {@link GZIPInputStream} as a single gzip file.
+ *
+ * @author Dmitry Ustalov
+ */
+public class GzipBlockOutputStreamTest {
+    private static byte[] decompress(byte[] bytes) throws IOException {
+        try (final InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1 << 16];
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) out.write(buffer, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] data(int length, long seed) {
+        // The text-like data of few distinct bytes are compressible, unlike the random ones.
+        final Random random = new Random(seed);
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) data[i] = (byte) ('a' + random.nextInt(8));
+        return data;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final byte[] data = data(5 * (1 << 20) + 12345, 1);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Random random = new Random(2);
+        try (final OutputStream out = new GzipBlockOutputStream(bytes)) {
+            for (int offset = 0; offset < data.length; ) {
+                if (random.nextInt(4) == 0) {
+                    out.write(data[offset++]);
+                } else {
+                    final int length = Math.min(random.nextInt(1 << 18), data.length - offset);
+                    out.write(data, offset, length);
+                    offset += length;
+                }
+            }
+        }
+        assertTrue(bytes.size() < data.length);
+        assertArrayEquals(data, decompress(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testFlush() throws IOException {
+        final byte[] data = data(3 * (1 << 20), 3);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final OutputStream out = new GzipBlockOutputStream(bytes)) {
+            out.write(data, 0, data.length / 2);
+            out.flush();
+            // The flushed prefix is a complete gzip file.
+            assertArrayEquals(Arrays.copyOf(data, data.length / 2), decompress(bytes.toByteArray()));
+            out.write(data, data.length / 2, data.length - data.length / 2);
+        }
+        assertArrayEquals(data, decompress(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new GzipBlockOutputStream(bytes).close();
+        assertEquals(0, decompress(bytes.toByteArray()).length);
+    }
+
+    @Test
+    public void testFailure() {
+        final OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("No space left on device");
+            }
+        };
+        try (final OutputStream out = new GzipBlockOutputStream(failing)) {
+            out.write(data(1 << 20, 4));
+            out.flush();
+            fail();
+        } catch (final IOException ex) {
+            assertEquals("No space left on device", ex.getCause().getMessage());
+        }
+    }
+}
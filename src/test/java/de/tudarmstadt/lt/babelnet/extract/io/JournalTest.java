@@ -0,0 +1,97 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * The journal is reopened after the complete commits and after the writes torn in the middle of a line.
+ *
+ * @author Dmitry Ustalov
+ */
+public class JournalTest {
+    private static final String COMMITTED = "bn:00000001n\nbn:00000002n\n#1234\n";
+
+    private static Journal reopen(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return Journal.open(file.toString());
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCommit() throws IOException {
+        final Path file = Files.createTempFile("journal", ".journal");
+        try {
+            try (final Journal journal = reopen(file, "")) {
+                assertEquals(0, journal.size());
+                assertEquals(0, journal.getOutputLength());
+                journal.commit(Arrays.asList("bn:00000001n", "bn:00000002n"), 1234);
+            }
+            assertEquals(COMMITTED, read(file));
+            try (final Journal journal = Journal.open(file.toString())) {
+                assertEquals(2, journal.size());
+                assertEquals(1234, journal.getOutputLength());
+                assertTrue(journal.isCompleted("bn:00000002n"));
+                assertFalse(journal.isCompleted("bn:00000003n"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTornCommit() throws IOException {
+        // The torn write of "#5678\n" leaves the shorter number, which must not be taken as the output length.
+        final Path file = Files.createTempFile("journal", ".journal");
+        try {
+            try (final Journal journal = reopen(file, COMMITTED + "bn:00000003n\n#56")) {
+                assertEquals(2, journal.size());
+                assertEquals(1234, journal.getOutputLength());
+                assertFalse(journal.isCompleted("bn:00000003n"));
+                journal.commit(Collections.singletonList("bn:00000003n"), 5678);
+            }
+            assertEquals(COMMITTED + "bn:00000003n\n#5678\n", read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testTornKey() throws IOException {
+        final Path file = Files.createTempFile("journal", ".journal");
+        try {
+            try (final Journal journal = reopen(file, COMMITTED + "bn:00000003n\nbn:0000")) {
+                assertEquals(2, journal.size());
+                assertEquals(1234, journal.getOutputLength());
+            }
+            assertEquals(COMMITTED, read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMalformedCommit() throws IOException {
+        final Path file = Files.createTempFile("journal", ".journal");
+        try {
+            try (final Journal journal = reopen(file, COMMITTED + "bn:00000003n\n#5x\nbn:00000004n\n#9012\n")) {
+                assertEquals(2, journal.size());
+                assertEquals(1234, journal.getOutputLength());
+                assertFalse(journal.isCompleted("bn:00000004n"));
+            }
+            assertEquals(COMMITTED, read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
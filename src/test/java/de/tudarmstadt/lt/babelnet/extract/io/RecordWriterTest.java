@@ -0,0 +1,119 @@
+package de.tudarmstadt.lt.babelnet.extract.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * The ordered and unordered modes of the writer stage and its failures.
+ *
+ * @author Dmitry Ustalov
+ */
+public class RecordWriterTest {
+    private static final int ITEMS = 10000;
+
+    private static String write(int window) throws Exception {
+        final StringWriter output = new StringWriter();
+        final List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) items.add(i);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (final RecordWriter writer = new RecordWriter(output, window)) {
+            final List<Future<?>> tasks = new ArrayList<>();
+            for (final int item : items) {
+                tasks.add(executor.submit(() -> {
+                    writer.write(item, csv -> {
+                        if (item % 3 != 0) csv.printRecord(item);
+                    });
+                    return null;
+                }));
+            }
+            for (final Future<?> task : tasks) task.get();
+        } finally {
+            executor.shutdown();
+        }
+        return output.toString();
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < ITEMS; i++) if (i % 3 != 0) expected.append(i).append('\n');
+        assertEquals(expected.toString(), write(16));
+    }
+
+    @Test
+    public void testUnordered() throws Exception {
+        final List<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) if (i % 3 != 0) expected.add(Integer.toString(i));
+        Collections.addAll(actual, write(0).split("\n"));
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test(timeout = 10000)
+    public void testPrinterFailure() throws Exception {
+        final RecordWriter writer = new RecordWriter(new StringWriter(), 4);
+        try {
+            writer.write(0, csv -> {
+                throw new IOException("broken");
+            });
+            fail();
+        } catch (final IOException ex) {
+            assertEquals("broken", ex.getMessage());
+        }
+        try {
+            writer.write(10, csv -> csv.printRecord(10));
+            fail();
+        } catch (final IOException ex) {
+            assertEquals("broken", ex.getCause().getMessage());
+        }
+        try {
+            writer.close();
+            fail();
+        } catch (final IOException ex) {
+            assertEquals("broken", ex.getCause().getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testAbortReleasesWaiting() throws Exception {
+        final RecordWriter writer = new RecordWriter(new StringWriter(), 4);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The item 0 never comes, so the item 10 is beyond the window and waits.
+            final Future<?> waiting = executor.submit(() -> {
+                writer.write(10, csv -> csv.printRecord(10));
+                return null;
+            });
+            try {
+                waiting.get(200, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (final TimeoutException ex) {
+                writer.abort(new IllegalStateException("lost"));
+            }
+            try {
+                waiting.get();
+                fail();
+            } catch (final ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof IOException);
+                assertEquals("lost", ex.getCause().getCause().getMessage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try {
+            writer.close();
+            fail();
+        } catch (final IOException ex) {
+            assertEquals("lost", ex.getCause().getMessage());
+        }
+    }
+}
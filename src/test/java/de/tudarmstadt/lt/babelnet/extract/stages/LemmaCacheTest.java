@@ -0,0 +1,127 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import de.tudarmstadt.lt.babelnet.extract.io.ExternalSorter;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * The lemma cache is queried by several threads with and without the memory budget, and the synsets passed
+ * to the listener are compared with the sorted set of the synsets of all the lemmas, which the clusters action
+ * used to collect from the cache. Without the budget, every lemma is looked up and passed to the listener once.
+ *
+ * @author Dmitry Ustalov
+ */
+public class LemmaCacheTest {
+    private static final int LEMMAS = 500, OCCURRENCES = 20000;
+
+    private static Set<String> synsets(String lemma) {
+        final int n = Integer.parseInt(lemma.substring(5));
+        final Set<String> synsets = new HashSet<>();
+        for (int i = 0; i < n % 7; i++) synsets.add(String.format("bn:%08dn", (n * 31 + i * 17) % 1000));
+        return Collections.unmodifiableSet(synsets);
+    }
+
+    private static List<String> occurrences(long seed) {
+        final Random random = new Random(seed);
+        final List<String> lemmas = new ArrayList<>();
+        for (int i = 0; i < OCCURRENCES; i++) lemmas.add("lemma" + random.nextInt(LEMMAS));
+        return lemmas;
+    }
+
+    /**
+     * Query the cache by several threads collecting the synsets passed to the listener.
+     *
+     * @param budget        the memory budget of the cache.
+     * @param lookups       the number of lookups per lemma.
+     * @param notifications the number of the listener calls.
+     * @param collected     the sorted distinct synsets passed to the listener.
+     * @return the cache.
+     * @throws IOException when an I/O error has occurred.
+     */
+    private static LemmaCache collect(long budget, Map<String, AtomicInteger> lookups, AtomicInteger notifications, List<String> collected) throws IOException {
+        try (final ExternalSorter sorter = new ExternalSorter(Comparator.naturalOrder(), 512)) {
+            final LemmaCache cache = new LemmaCache((lemma, language, pos) -> {
+                lookups.computeIfAbsent(lemma, key -> new AtomicInteger()).incrementAndGet();
+                return synsets(lemma);
+            }, synsets -> {
+                notifications.incrementAndGet();
+                try {
+                    sorter.addAll(synsets);
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, budget);
+            occurrences(1).parallelStream().forEach(lemma -> {
+                try {
+                    assertEquals(synsets(lemma), cache.get(lemma, Language.EN, null));
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            assertTrue(sorter.getRuns() > 1);
+            assertEquals(OCCURRENCES, cache.getHits() + cache.getMisses());
+            assertEquals(cache.getMisses(), notifications.get());
+            sorter.sorted(true).forEachRemaining(collected::add);
+            return cache;
+        }
+    }
+
+    private static List<String> expected() {
+        final Set<String> synsets = new TreeSet<>();
+        for (final String lemma : new HashSet<>(occurrences(1))) synsets.addAll(synsets(lemma));
+        return new ArrayList<>(synsets);
+    }
+
+    @Test
+    public void testUnlimited() throws IOException {
+        final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+        final AtomicInteger notifications = new AtomicInteger();
+        final List<String> collected = new ArrayList<>();
+        final LemmaCache cache = collect(Long.MAX_VALUE, lookups, notifications, collected);
+        assertEquals(expected(), collected);
+        assertEquals(LEMMAS, cache.size());
+        assertEquals(LEMMAS, notifications.get());
+        for (final AtomicInteger count : lookups.values()) assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testBudget() throws IOException {
+        // Only a few lemmas fit in the budget, so the others are not cached and are looked up and collected again.
+        final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+        final AtomicInteger notifications = new AtomicInteger();
+        final List<String> collected = new ArrayList<>();
+        final LemmaCache cache = collect(2048, lookups, notifications, collected);
+        assertEquals(expected(), collected);
+        assertTrue(cache.size() > 0);
+        assertTrue(cache.size() <= 2048 / 160 + Runtime.getRuntime().availableProcessors());
+        assertEquals(LEMMAS, lookups.size());
+        assertTrue(notifications.get() > LEMMAS);
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        final AtomicInteger calls = new AtomicInteger();
+        final LemmaCache cache = new LemmaCache((lemma, language, pos) -> {
+            if (calls.incrementAndGet() == 1) throw new IOException("The index is unavailable");
+            return synsets(lemma);
+        }, synsets -> {
+        }, Long.MAX_VALUE);
+        try {
+            cache.get("lemma3", Language.EN, null);
+            fail();
+        } catch (final IOException ex) {
+            assertEquals("The index is unavailable", ex.getMessage());
+        }
+        assertEquals(synsets("lemma3"), cache.get("lemma3", Language.EN, null));
+        assertEquals(synsets("lemma3"), cache.get("lemma3", Language.EN, null));
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,58 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.joining;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The lemma index filled by several threads is compared with the one built of the sorted maps.
+ *
+ * @author Dmitry Ustalov
+ */
+public class LemmaIndexTest {
+    @Test
+    public void testPrint() throws IOException {
+        final Random random = new Random(1);
+        final List<String> synsets = new ArrayList<>();
+        final List<String[]> lemmas = new ArrayList<>();
+        final List<int[]> frequencies = new ArrayList<>();
+        final Map<String, Map<String, Integer>> expected = new TreeMap<>();
+        for (int i = 0; i < 2000; i++) {
+            final String synsetID = String.format("bn:%08dn", random.nextInt(100000000));
+            final Set<String> distinct = new LinkedHashSet<>();
+            for (int j = random.nextInt(8); j > 0; j--) distinct.add("lemma" + random.nextInt(500));
+            final String[] synsetLemmas = distinct.toArray(new String[0]);
+            final int[] synsetFrequencies = new int[synsetLemmas.length];
+            for (int j = 0; j < synsetLemmas.length; j++) {
+                synsetFrequencies[j] = random.nextInt(100);
+                expected.computeIfAbsent(synsetLemmas[j], lemma -> new TreeMap<>()).put(synsetID, synsetFrequencies[j]);
+            }
+            synsets.add(synsetID);
+            lemmas.add(synsetLemmas);
+            frequencies.add(synsetFrequencies);
+        }
+
+        final LemmaIndex index = new LemmaIndex();
+        IntStream.range(0, synsets.size()).parallel().forEach(i ->
+                index.add(synsets.get(i), lemmas.get(i), frequencies.get(i), lemmas.get(i).length));
+        assertEquals(expected.size(), index.getLemmaCount());
+        assertEquals(expected.values().stream().mapToInt(Map::size).sum(), index.size());
+
+        final StringWriter output = new StringWriter();
+        try (final CSVPrinter csv = CSVFormat.MYSQL.print(output)) {
+            index.print(csv);
+        }
+        final StringBuilder sb = new StringBuilder();
+        expected.forEach((lemma, postings) -> sb.append(lemma).append('\t').append(postings.entrySet().stream().
+                map(entry -> entry.getKey() + ':' + entry.getValue()).collect(joining(","))).append('\n'));
+        assertEquals(sb.toString(), output.toString());
+    }
+}
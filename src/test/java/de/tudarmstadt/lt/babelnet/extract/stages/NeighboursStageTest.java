@@ -0,0 +1,61 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import de.tudarmstadt.lt.babelnet.extract.graph.Taxonomy;
+import de.tudarmstadt.lt.babelnet.extract.graph.TaxonomyFixture;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The records of the neighbours stage are compared with the ones of the original implementation.
+ *
+ * @author Dmitry Ustalov
+ */
+public class NeighboursStageTest {
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static TaxonomyFixture fixture;
+    private static Taxonomy taxonomy;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        fixture = new TaxonomyFixture(2000, 10, 42);
+        taxonomy = fixture.write(folder.newFile("taxonomy.bin"));
+    }
+
+    @Test
+    public void testOriginalRecords() throws IOException {
+        for (int depth = 1; depth <= 3; depth++) {
+            final NeighboursStage stage = new NeighboursStage(taxonomy, depth);
+            final StringWriter expected = new StringWriter(), actual = new StringWriter();
+            try (final CSVPrinter expectedCSV = new CSVPrinter(expected, CSVFormat.MYSQL);
+                 final CSVPrinter actualCSV = new CSVPrinter(actual, CSVFormat.MYSQL)) {
+                for (final String synsetID : fixture.getSynsets()) {
+                    final Map<String, Integer> neighbours = fixture.walk(synsetID, depth);
+                    if (!neighbours.isEmpty()) expectedCSV.printRecord(synsetID, TaxonomyFixture.format(neighbours));
+                    stage.print(synsetID, null, actualCSV);
+                }
+            }
+            assertEquals("depth " + depth, expected.toString(), actual.toString());
+        }
+    }
+
+    @Test
+    public void testAbsentSynset() throws IOException {
+        final StringWriter actual = new StringWriter();
+        try (final CSVPrinter csv = new CSVPrinter(actual, CSVFormat.MYSQL)) {
+            new NeighboursStage(taxonomy, 2).print("bn:99999999n", null, csv);
+        }
+        assertEquals("", actual.toString());
+    }
+}
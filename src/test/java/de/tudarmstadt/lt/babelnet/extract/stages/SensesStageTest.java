@@ -0,0 +1,95 @@
+package de.tudarmstadt.lt.babelnet.extract.stages;
+
+import it.uniroma1.lcl.babelnet.BabelSense;
+import it.uniroma1.lcl.babelnet.BabelSynset;
+import it.uniroma1.lcl.jlt.util.Language;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+import static java.util.stream.Collectors.joining;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The records of the senses stage are compared with the ones of the original implementation, which normalized
+ * the lemmas with a regular expression and collected them into a case-insensitive tree map. The synsets and their
+ * senses are mocked.
+ *
+ * @author Dmitry Ustalov
+ */
+public class SensesStageTest {
+    private static final String ALPHABET = "aAbB_";
+
+    private static String lemma(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = random.nextInt(4); i >= 0; i--) sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        return sb.toString();
+    }
+
+    private static BabelSynset synset(String[] lemmas, int[] frequencies) {
+        final List<BabelSense> senses = new ArrayList<>();
+        for (int i = 0; i < lemmas.length; i++) {
+            final BabelSense sense = mock(BabelSense.class);
+            when(sense.getSimpleLemma()).thenReturn(lemmas[i]);
+            when(sense.getFrequency()).thenReturn(frequencies[i]);
+            senses.add(sense);
+        }
+        final BabelSynset synset = mock(BabelSynset.class);
+        when(synset.getSenses(Language.EN)).thenReturn(senses);
+        return synset;
+    }
+
+    private static void printOriginal(String synsetID, String[] lemmas, int[] frequencies, CSVPrinter csv) throws IOException {
+        final Map<String, Integer> senses = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < lemmas.length; i++) senses.putIfAbsent(lemmas[i].replaceAll("_", " "), frequencies[i]);
+        if (!senses.isEmpty()) {
+            csv.printRecord(synsetID, senses.entrySet().stream().map(entry -> entry.getKey() + ':' + entry.getValue()).
+                    collect(joining(",")));
+        }
+    }
+
+    @Test
+    public void testOriginal() throws IOException {
+        final Random random = new Random(1);
+        final SensesStage stage = new SensesStage(Language.EN);
+        final StringWriter expected = new StringWriter(), actual = new StringWriter();
+        try (final CSVPrinter expectedCSV = CSVFormat.MYSQL.print(expected); final CSVPrinter actualCSV = CSVFormat.MYSQL.print(actual)) {
+            for (int i = 0; i < 500; i++) {
+                final String synsetID = String.format("bn:%08dn", i);
+                final String[] lemmas = new String[random.nextInt(40)];
+                final int[] frequencies = new int[lemmas.length];
+                for (int j = 0; j < lemmas.length; j++) {
+                    lemmas[j] = lemma(random);
+                    frequencies[j] = random.nextInt(100);
+                }
+                printOriginal(synsetID, lemmas, frequencies, expectedCSV);
+                stage.print(synsetID, synset(lemmas, frequencies), actualCSV);
+            }
+        }
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        final LemmaIndex index = new LemmaIndex();
+        final SensesStage stage = new SensesStage(Language.EN, index);
+        final StringWriter records = new StringWriter(), output = new StringWriter();
+        try (final CSVPrinter csv = CSVFormat.MYSQL.print(records)) {
+            stage.print("bn:00000002n", synset(new String[]{"New_York", "new york", "NYC"}, new int[]{5, 3, 1}), csv);
+            stage.print("bn:00000001n", synset(new String[]{"NYC", "Big_Apple"}, new int[]{2, 4}), csv);
+            stage.print("bn:00000003n", synset(new String[0], new int[0]), csv);
+            stage.print("bn:00000004n", null, csv);
+        }
+        assertEquals("bn:00000002n\tNew York:5,NYC:1\nbn:00000001n\tBig Apple:4,NYC:2\n", records.toString());
+        try (final CSVPrinter csv = CSVFormat.MYSQL.print(output)) {
+            index.print(csv);
+        }
+        assertEquals("Big Apple\tbn:00000001n:4\nNYC\tbn:00000001n:2,bn:00000002n:1\nNew York\tbn:00000002n:5\n", output.toString());
+    }
+}